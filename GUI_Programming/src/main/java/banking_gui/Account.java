@@ -13,16 +13,22 @@ public abstract class Account implements Comparable<Account> {
     // The profile of the account holder.
     protected Profile holder;
 
-    // The current balance of the account.
-    protected double balance;
+    // The current balance of the account, in cents.
+    protected long balance;
+
+    // The store holding the data of the account, null while detached.
+    AccountStore store;
+
+    // The slot of the account in the store, NOT_FOUND while detached.
+    int slot = Constants.NOT_FOUND;
 
     /**
      * Constructor for Account class.
      * 
      * @param holder  The profile of the account holder.
-     * @param balance The initial balance of the account.
+     * @param balance The initial balance of the account, in cents.
      */
-    public Account(Profile holder, double balance) {
+    public Account(Profile holder, long balance) {
         this.holder = holder;
         this.balance = balance;
     }
@@ -39,36 +45,104 @@ public abstract class Account implements Comparable<Account> {
     /**
      * Gets the holder's profile.
      * 
-     * @param amount The amount the balance will be changed to.
+     * @param amount The amount the balance will be changed to, in cents.
      * 
      * @return The new balance of the account.
      */
-    public void setBalance(double amount) {
-        balance = amount;
+    public void setBalance(long amount) {
+        if (store == null) {
+            balance = amount;
+        } else {
+            store.setBalance(slot, amount);
+        }
     }
 
     /**
      * Gets the current balance of the account.
      * 
-     * @return The balance of the account.
+     * @return The balance of the account, in cents.
+     */
+    public long getBalance() {
+        return store == null ? balance : store.balance(slot);
+    }
+
+    /**
+     * Turns the account into a view over a slot of the store, copying its
+     * data into the columns of the slot.
+     *
+     * @param store The store holding the account.
+     * @param slot  The slot of the account in the store.
      */
-    public double getBalance() {
-        return balance;
+    void attach(AccountStore store, int slot) {
+        store.setBalance(slot, balance);
+        this.store = store;
+        this.slot = slot;
     }
 
     /**
-     * Calculates and returns the monthly interest for the account.
+     * Copies the data of the account back from its slot and detaches it
+     * from the store.
+     */
+    void detach() {
+        balance = store.takeBalance(slot);
+        store = null;
+        slot = Constants.NOT_FOUND;
+    }
+
+    /**
+     * Calculates and returns the monthly interest for the account, with the
+     * rules of its type in the AccountPolicy in effect.
      * 
-     * @return The monthly interest amount.
+     * @return The monthly interest amount, in cents.
      */
-    public abstract double monthlyInterest();
+    public final long monthlyInterest() {
+        if (store != null) {
+            return AccountPolicy.current().monthlyInterest(store.type(slot), store.balance(slot),
+                    store.isLoyal(slot));
+        }
+        return AccountPolicy.current().monthlyInterest(getType().ordinal(), balance, loyalStatus());
+    }
 
     /**
-     * Calculates and returns the monthly fee for the account.
+     * Calculates and returns the monthly fee for the account, with the rules
+     * of its type in the AccountPolicy in effect.
      * 
-     * @return The monthly fee amount.
+     * @return The monthly fee amount, in cents.
+     */
+    public final long monthlyFee() {
+        if (store != null) {
+            return AccountPolicy.current().monthlyFee(store.type(slot), store.balance(slot),
+                    store.withdrawals(slot));
+        }
+        return AccountPolicy.current().monthlyFee(getType().ordinal(), balance, withdrawalCount());
+    }
+
+    /**
+     * Gets the loyal customer status the holder was given when opening the
+     * account. Only the account types that keep one override this.
+     *
+     * @return The loyal customer status.
+     */
+    boolean loyalStatus() {
+        return false;
+    }
+
+    /**
+     * Gets the withdrawals made this month. Only the account types that
+     * count them override this.
+     *
+     * @return The withdrawal count.
+     */
+    int withdrawalCount() {
+        return 0;
+    }
+
+    /**
+     * Gets the type of the account.
+     *
+     * @return The account type.
      */
-    public abstract double monthlyFee();
+    public abstract AccountType getType();
 
     /**
      * Compares this account with another account. The comparison is first based
@@ -80,8 +154,8 @@ public abstract class Account implements Comparable<Account> {
      */
     @Override
     public int compareTo(Account otherAccount) {
-        if (this.balance != otherAccount.balance) {
-            return Double.compare(this.balance, otherAccount.balance);
+        if (this.getBalance() != otherAccount.getBalance()) {
+            return Long.compare(this.getBalance(), otherAccount.getBalance());
         }
         return this.holder.compareTo(otherAccount.holder);
     }
@@ -0,0 +1,226 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary format for exporting and importing accounts, used both
+ * to exchange account data and for snapshots. A file holds a header
+ * (magic, version, journal sequence and account count), one length-prefixed
+ * RecordCodec record per account and a CRC32C checksum of the records.
+ * Dates are packed, balances are cents and the type, campus and loyalty are
+ * codes, so nothing is parsed from text. Files are written and read with
+ * NIO bulk transfers through a buffer.
+ *
+ * @author Altay Ozkan
+ */
+public final class AccountArchive {
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * AccountArchive only provides static methods and is not instantiated.
+     */
+    private AccountArchive() {
+    }
+
+    /**
+     * Writes accounts to an archive file and forces it to disk.
+     *
+     * @param path     The archive file, replaced if it exists.
+     * @param accounts The accounts to be written.
+     * @param count    The number of accounts.
+     * @param sequence The sequence of the last journal record included, 0
+     *                 for an export.
+     * @throws IOException if the archive cannot be written.
+     */
+    public static void write(Path path, Iterable<Account> accounts, int count, long sequence) throws IOException {
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Constants.JOURNAL_BUFFER_SIZE);
+            buffer.putInt(Constants.ARCHIVE_MAGIC).putShort(Constants.ARCHIVE_VERSION).putLong(sequence)
+                    .putInt(count);
+            int written = 0;
+            for (Account account : accounts) {
+                int needed = Integer.BYTES + RecordCodec.maxAccountBytes(account.getHolder());
+                if (buffer.remaining() < needed) {
+                    drain(channel, buffer, checksum);
+                    if (buffer.capacity() < needed) {
+                        buffer = ByteBuffer.allocate(needed);
+                    }
+                }
+                int start = buffer.position();
+                buffer.position(start + Integer.BYTES);
+                RecordCodec.writeAccount(buffer, account);
+                buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+                written++;
+            }
+            if (written != count) {
+                throw new IOException("Accounts changed while writing the archive");
+            }
+            drain(channel, buffer, checksum);
+            buffer.putInt((int) checksum.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes out the content of a buffer, adding the record bytes to the
+     * checksum, and clears the buffer.
+     *
+     * @param channel  The archive file.
+     * @param buffer   The buffer to be written.
+     * @param checksum The checksum of the records.
+     * @throws IOException if the buffer cannot be written.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+        buffer.flip();
+        int records = channel.position() == 0 ? HEADER_BYTES : 0;
+        checksum.update(buffer.array(), records, buffer.limit() - records);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Checks if a file starts with the archive magic number.
+     *
+     * @param path The file to check.
+     * @return true if the file is an archive, false otherwise.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isArchive(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // read the whole magic number
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == Constants.ARCHIVE_MAGIC;
+        }
+    }
+
+    /**
+     * Reads an archive, handing each account to a handler. The whole file is
+     * verified against its checksum before any account is handed over.
+     *
+     * @param path    The archive file.
+     * @param handler Called with each account, detached.
+     * @return The sequence of the last journal record included.
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     archive.
+     */
+    public static long read(Path path, Consumer<Account> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = channel.size() - Integer.BYTES;
+            if (end < HEADER_BYTES) {
+                throw new IOException("Archive file is truncated");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Constants.JOURNAL_BUFFER_SIZE);
+            fill(channel, buffer.limit(HEADER_BYTES));
+            if (buffer.getInt() != Constants.ARCHIVE_MAGIC) {
+                throw new IOException("Not an account archive");
+            }
+            short version = buffer.getShort();
+            if (version != Constants.ARCHIVE_VERSION) {
+                throw new IOException("Unsupported archive version: " + version);
+            }
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            verify(channel, buffer, end);
+            channel.position(HEADER_BYTES);
+            buffer.clear().limit(0);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    buffer = refill(channel, buffer, Integer.BYTES);
+                }
+                int length = buffer.getInt(buffer.position());
+                if (length < 0 || channel.position() - buffer.remaining() + Integer.BYTES + length > end) {
+                    throw new IOException("Archive record is corrupt");
+                }
+                if (buffer.remaining() < Integer.BYTES + length) {
+                    buffer = refill(channel, buffer, Integer.BYTES + length);
+                }
+                buffer.getInt();
+                int next = buffer.position() + length;
+                handler.accept(RecordCodec.readAccount(buffer));
+                buffer.position(next);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Checks the records of an archive against its trailing checksum.
+     *
+     * @param channel The archive file.
+     * @param buffer  A buffer to read through.
+     * @param end     The position of the checksum.
+     * @throws IOException if the checksum does not match.
+     */
+    private static void verify(FileChannel channel, ByteBuffer buffer, long end) throws IOException {
+        CRC32C checksum = new CRC32C();
+        channel.position(HEADER_BYTES);
+        long left = end - HEADER_BYTES;
+        while (left > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), left));
+            fill(channel, buffer);
+            checksum.update(buffer);
+            left -= buffer.limit();
+        }
+        buffer.clear().limit(Integer.BYTES);
+        fill(channel, buffer);
+        if ((int) checksum.getValue() != buffer.getInt()) {
+            throw new IOException("Archive checksum mismatch");
+        }
+    }
+
+    /**
+     * Moves the unread bytes of a buffer to its start and reads more, growing
+     * the buffer if a record does not fit.
+     *
+     * @param channel The archive file.
+     * @param buffer  The buffer, ready for reading.
+     * @param needed  The number of bytes the caller needs.
+     * @return The buffer, ready for reading, holding at least the needed
+     *         bytes.
+     * @throws IOException if the file ends before the needed bytes.
+     */
+    private static ByteBuffer refill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocate(needed).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Archive file is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads from the current position until the buffer is full.
+     *
+     * @param channel The archive file.
+     * @param buffer  The buffer to fill up to its limit.
+     * @throws IOException if the file ends first.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Archive file is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -1,96 +1,393 @@
 package banking_gui;
 
-import java.text.DecimalFormat;
-import javafx.scene.control.TextArea;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 import javafx.scene.control.TextField;
 
 /**
  * This class represents a database of various banking accounts.
  * It includes operations to manipulate and retrieve account data.
+ * Opening and closing accounts is serialized by a structure lock, which
+ * lookups only read optimistically. Deposits and withdrawals update the
+ * balance with compare-and-set and never lock, so that many threads can
+ * post to the same or different accounts in parallel.
+ * When a Journal is set, every change that was applied is appended to it
+ * and made durable as required by its DurabilityPolicy.
  *
  * @author Altay Ozkan
  */
-public class AccountDatabase {
-    private Account[] accounts; // list of various types of accounts
-    private int numAcct; // number of accounts in the array
+public class AccountDatabase implements AccountRepository {
+    private AccountStore store; // columnar storage of the accounts
+    private AccountIndex index; // hash index of the accounts by holder and type
+    private final Portfolio portfolio; // running totals of the accounts
+    private final BalanceIndex balanceIndex; // accounts ordered by type and balance
+    private ConcurrentSkipListSet<Account> sorted; // accounts ordered by account type and profile
+    private final StampedLock structure; // guards open, close and the index
+    private volatile Journal journal; // journal of the changes, null if not journaled
 
     /**
      * Default constructor initializes the account database with
      * a default initial capacity.
      */
     public AccountDatabase() {
-        this.accounts = new Account[Constants.INITIAL_CAPACITY];
-        this.numAcct = 0;
+        this(0, false);
     }
 
     /**
-     * Finds the index of a specific account in the database.
+     * Initializes the account database with enough capacity for the expected
+     * number of accounts, so that loading them never grows the storage.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public AccountDatabase(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * Initializes the account database with enough capacity for the expected
+     * number of accounts.
+     *
+     * @param expectedSize The expected number of accounts.
+     * @param concurrent   true if the database is shared between threads. The
+     *                     slots of closed accounts are then never reused or
+     *                     compacted, so that a posting racing a close cannot
+     *                     reach another account.
+     */
+    public AccountDatabase(int expectedSize, boolean concurrent) {
+        this.portfolio = new Portfolio();
+        this.balanceIndex = new BalanceIndex();
+        this.store = new AccountStore(expectedSize, !concurrent, portfolio, balanceIndex);
+        this.index = new AccountIndex(expectedSize);
+        this.sorted = new ConcurrentSkipListSet<>(TYPE_PROFILE_ORDER);
+        this.structure = new StampedLock();
+    }
+
+    /**
+     * Finds a specific account in the database. An account of the exact same
+     * type is preferred, then an account of the same family (Savings or
+     * Checking), then any account of the same holder.
      *
      * @param account The account to find.
-     * @return The index of the account if found, otherwise returns
-     *         Constants.NOT_FOUND.
-     */
-    private int find(Account account) {
-        for (int i = 0; i < numAcct; i++) {
-            if (accounts[i].getHolder().getFname().toUpperCase().equals(account.getHolder().getFname().toUpperCase())
-                    && accounts[i].getHolder().getLname().toUpperCase()
-                    .equals(account.getHolder().getLname().toUpperCase())
-                    && accounts[i].getHolder().getDob().equals(account.getHolder().getDob())
-                    && accounts[i].getClass() == account.getClass()) {
-                return i;
-            }
+     * @return The matching account if found, otherwise returns null.
+     */
+    private Account find(Account account) {
+        Profile holder = account.getHolder();
+        AccountType type = account.getType();
+        Account found = lookup(holder, type);
+        if (found == null) {
+            found = lookup(holder, type.sibling());
         }
-        for (int i = 0; i < numAcct; i++) {
-            if (accounts[i].getHolder().getFname().toUpperCase().equals(account.getHolder().getFname().toUpperCase())
-                    && accounts[i].getHolder().getLname().toUpperCase()
-                    .equals(account.getHolder().getLname().toUpperCase())
-                    && accounts[i].getHolder().getDob().equals(account.getHolder().getDob())
-                    && ((accounts[i] instanceof Savings && account instanceof Savings) || (accounts[i] instanceof
-                    Checking && account instanceof Checking))) {
-                return i;
+        if (found == null) {
+            for (AccountType other : AccountType.values()) {
+                if (other != type && other != type.sibling()) {
+                    found = lookup(holder, other);
+                    if (found != null) {
+                        break;
+                    }
+                }
             }
         }
-        for (int i = 0; i < numAcct; i++) {
-            if (accounts[i].getHolder().getFname().toUpperCase().equals(account.getHolder().getFname().toUpperCase())
-                    && accounts[i].getHolder().getLname().toUpperCase()
-                    .equals(account.getHolder().getLname().toUpperCase())
-                    && accounts[i].getHolder().getDob().equals(account.getHolder().getDob())) {
-                return i;
+        return found;
+    }
+
+    /**
+     * Finds a specific account in the database based on the account holder's
+     * details and exact account type.
+     *
+     * @param account The account to find based on exact details.
+     * @return The account if found, otherwise returns null.
+     */
+    private Account findExact(Account account) {
+        return lookup(account.getHolder(), account.getType());
+    }
+
+    /**
+     * Looks up an account in the index under an optimistic read of the
+     * structure lock, falling back to a read lock if accounts keep being
+     * opened or closed during the lookup.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The account if found, otherwise returns null.
+     */
+    private Account lookup(Profile holder, AccountType type) {
+        for (int attempt = 0; attempt < Constants.OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = structure.tryOptimisticRead();
+            if (stamp != 0) {
+                Account found = index.get(holder, type);
+                if (structure.validate(stamp)) {
+                    return found;
+                }
             }
+            Thread.onSpinWait();
+        }
+        long stamp = structure.readLock();
+        try {
+            return index.get(holder, type);
+        } finally {
+            structure.unlockRead(stamp);
         }
-        return Constants.NOT_FOUND;
     }
 
     /**
-     * Finds the index of a specific account in the database based on
-     * the account holder's details and exact account type.
+     * Sets the journal that every change to the database is appended to.
      *
-     * @param account The account to find based on exact details.
-     * @return The index of the account if found, otherwise returns
-     *         Constants.NOT_FOUND.
-     */
-    private int findExact(Account account) {
-        for (int i = 0; i < numAcct; i++) {
-            if (accounts[i].getHolder().getFname().toUpperCase().equals(account.getHolder().getFname().toUpperCase())
-                    && accounts[i].getHolder().getLname().toUpperCase()
-                    .equals(account.getHolder().getLname().toUpperCase())
-                    && accounts[i].getHolder().getDob().equals(account.getHolder().getDob())
-                    && accounts[i].getClass() == account.getClass()) {
-                return i;
+     * @param journal The journal, or null to stop journaling.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Marks the end of a batch of changes, such as a run of the pipeline,
+     * so that the journal can make them durable together.
+     */
+    public void endBatch() {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.endBatch();
+        }
+    }
+
+    /**
+     * Writes a snapshot of every account, tagged with the last journal
+     * record it includes. The snapshot takes the write lock of the
+     * structure, like closeMonth, so that it waits for the postings already
+     * applied to reach the journal and every other change waits for it.
+     *
+     * @param path The snapshot file, replaced atomically.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        long stamp = structure.writeLock();
+        try {
+            Journal journal = this.journal;
+            long sequence = journal == null ? 0 : journal.lastSequence();
+            Snapshot.write(path, sorted, store.size(), sequence);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Exports every account, in sorted order, to a binary account archive.
+     * Opening and closing accounts waits for the export.
+     *
+     * @param path The archive file, replaced if it exists.
+     * @throws IOException if the archive cannot be written.
+     */
+    public void exportAccounts(Path path) throws IOException {
+        long stamp = structure.readLock();
+        try {
+            AccountArchive.write(path, sorted, store.size(), 0);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Rebuilds a database from its latest snapshot and the tail of its
+     * journal: the journal records after the snapshot are replayed in order.
+     * The returned database has no journal set.
+     *
+     * @param snapshot   The snapshot file, or a missing file to replay the
+     *                   whole journal.
+     * @param journal    The journal file, or a missing file.
+     * @param concurrent true if the database is shared between threads.
+     * @return The recovered database.
+     * @throws IOException if a file cannot be read or is corrupt.
+     */
+    public static AccountDatabase recover(Path snapshot, Path journal, boolean concurrent) throws IOException {
+        AccountDatabase database = new AccountDatabase(0, concurrent);
+        long included = Snapshot.read(snapshot, database::open);
+        Journal.read(journal, record -> {
+            if (record.getLong() > included) {
+                database.replay(record);
+            }
+        });
+        return database;
+    }
+
+    /**
+     * Applies one journal record. A withdrawal or transfer is applied without
+     * a funds check, since it was checked when it was first applied.
+     *
+     * @param record The body of the record, after its sequence number.
+     */
+    private void replay(ByteBuffer record) {
+        CommandType command = CommandType.values()[record.get()];
+        switch (command) {
+            case OPEN -> open(RecordCodec.readAccount(record));
+            case CLOSE -> close(RecordCodec.readKey(record));
+            case DEPOSIT, WITHDRAW -> {
+                Account account = RecordCodec.readKey(record);
+                long amount = record.getLong();
+                post(account, command == CommandType.DEPOSIT ? amount : -amount);
             }
+            case TRANSFER -> {
+                Account from = RecordCodec.readKey(record);
+                Account to = RecordCodec.readKey(record);
+                long amount = record.getLong();
+                post(from, -amount);
+                post(to, amount);
+            }
+            case MONTH_END -> closeMonth();
         }
-        return Constants.NOT_FOUND;
     }
 
     /**
-     * Increases the size of the accounts array to accommodate more accounts.
+     * Adds an amount to a balance while replaying the journal, counting a
+     * Money Market withdrawal for a negative amount.
+     *
+     * @param account The account, found by exact type.
+     * @param amount  The amount to be added, in cents.
      */
-    private void grow() {
-        Account[] newAccounts = new Account[accounts.length + Constants.GROWTH_AMOUNT];
-        for (int i = 0; i < numAcct; i++) {
-            newAccounts[i] = accounts[i];
+    private void post(Account account, long amount) {
+        Account found = findExact(account);
+        if (found != null && store.deposit(found.slot, amount) && amount < 0
+                && found.getType() == AccountType.MONEY_MARKET) {
+            store.incrementWithdrawals(found.slot);
         }
-        accounts = newAccounts;
+    }
+
+    /**
+     * Starts a posting. A posting to a journaled database holds the read
+     * lock of the structure from its update to the append of its record,
+     * so that a month end or a snapshot, which take the write lock, is
+     * journaled after every posting applied before it and before every
+     * posting applied after it. Postings may still reach the journal in a
+     * different order among themselves, since replaying them in any order
+     * gives the same balances. Without a journal, postings do not lock.
+     *
+     * @param journal The journal of the database, or null.
+     * @return The read stamp, or 0 if no lock was taken.
+     */
+    private long beginPosting(Journal journal) {
+        return journal == null ? 0 : structure.readLock();
+    }
+
+    /**
+     * Ends a posting started by beginPosting.
+     *
+     * @param stamp The stamp returned by beginPosting.
+     */
+    private void endPosting(long stamp) {
+        if (stamp != 0) {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Looks up an account for a posting.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param stamp  The stamp returned by beginPosting.
+     * @return The account if found, otherwise returns null.
+     */
+    private Account locate(Profile holder, AccountType type, long stamp) {
+        return stamp != 0 ? index.get(holder, type) : lookup(holder, type);
+    }
+
+    /**
+     * Makes a journal record durable as required by the journal policy.
+     *
+     * @param journal  The journal the record was appended to, or null.
+     * @param sequence The sequence number of the record.
+     */
+    private static void commit(Journal journal, long sequence) {
+        if (journal != null) {
+            journal.commit(sequence);
+        }
+    }
+
+    /**
+     * Makes sure the database can hold the expected number of accounts
+     * without growing. Used to pre-size the storage before a bulk load.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public void ensureCapacity(int expectedSize) {
+        long stamp = structure.writeLock();
+        try {
+            store.ensureCapacity(expectedSize);
+            index.ensureCapacity(expectedSize);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the running totals of the accounts, per account type and per
+     * campus, kept up to date by every open, close and posting.
+     *
+     * @return The portfolio of the database.
+     */
+    public Portfolio getPortfolio() {
+        return portfolio;
+    }
+
+    /**
+     * Finds the accounts of a type whose balance is in a range, from the
+     * balance index, in the order of Account.compareTo.
+     *
+     * @param type The account type.
+     * @param from The lowest balance, inclusive, in cents.
+     * @param to   The highest balance, exclusive, in cents.
+     * @return The accounts found.
+     */
+    public List<Account> accountsBetween(AccountType type, long from, long to) {
+        return balanceIndex.range(type, from, to);
+    }
+
+    /**
+     * Finds the accounts of a type whose balance is under an amount, such as
+     * the balance from which no monthly fee is charged or from which an
+     * account is loyal.
+     *
+     * @param type    The account type.
+     * @param balance The balance, exclusive, in cents.
+     * @return The accounts found, in the order of Account.compareTo.
+     */
+    public List<Account> accountsBelow(AccountType type, long balance) {
+        return balanceIndex.range(type, Long.MIN_VALUE, balance);
+    }
+
+    /**
+     * Finds the accounts of a type that would be charged the monthly fee of
+     * their balance under the AccountPolicy in effect.
+     *
+     * @param type The account type.
+     * @return The accounts under the no-fee balance of the type.
+     */
+    public List<Account> feeNotices(AccountType type) {
+        return accountsBelow(type, AccountPolicy.current().noFeeBalance(type.ordinal()));
+    }
+
+    /**
+     * Gets the number of accounts in the database.
+     *
+     * @return The number of accounts.
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Gets every account, ordered by account type and then profile.
+     *
+     * @return The accounts, in report order.
+     */
+    public Iterable<Account> sorted() {
+        return sorted;
     }
 
     /**
@@ -100,13 +397,13 @@ public class AccountDatabase {
      * @return true if the account exists, false otherwise.
      */
     public boolean contains(Account account) {
-        int index = find(account);
-        if (index != Constants.NOT_FOUND && (accounts[index] instanceof Checking && account instanceof Checking)) {
+        Account found = find(account);
+        if (found != null && found.getType().isChecking() && account.getType().isChecking()) {
             return true;
-        } else if (index != Constants.NOT_FOUND && (accounts[index].getClass() != account.getClass())) {
+        } else if (found != null && found.getType() != account.getType()) {
             return false;
         }
-        return index != Constants.NOT_FOUND;
+        return found != null;
     }
 
     /**
@@ -117,48 +414,133 @@ public class AccountDatabase {
      * @return The account if found, otherwise returns null.
      */
     public Account getAccount(Account account) {
-        int i = findExact(account);
-        if(i != Constants.NOT_FOUND){
-            return accounts[i];
-        }
-        return null;
+        return findExact(account);
     }
 
     /**
-     * Adds a new account to the database.
-     * If the database is full, it will expand.
+     * Adds a new account to the database, unless its holder already has an
+     * account of the same type, or a checking account for a checking family
+     * account. The check and the insertion are done under the same write
+     * lock, so that two concurrent opens cannot both succeed.
+     * If the database is full, the store will expand by one segment.
      *
      * @param account The account to be added.
-     * @return true if the account was added successfully, false otherwise.
+     * @return true if the account was added successfully, false if it was a
+     *         duplicate.
      */
     public boolean open(Account account) {
-        if (numAcct >= accounts.length) {
-            grow();
+        Journal journal = this.journal;
+        long sequence = 0;
+        long stamp = structure.writeLock();
+        try {
+            if (isDuplicate(account)) {
+                return false;
+            }
+            store.allocate(account);
+            index.put(account);
+            sorted.add(account);
+            if (journal != null) {
+                sequence = journal.appendOpen(account);
+            }
+        } finally {
+            structure.unlockWrite(stamp);
         }
-        if (numAcct < accounts.length) {
-            accounts[numAcct] = account;
-            numAcct++;
-            return true;
-        } else {
-            return false;
+        commit(journal, sequence);
+        return true;
+    }
+
+    /**
+     * Opens a batch of accounts, such as a loaded file, under a single write
+     * lock. Duplicates are detected in one pass over the index, which is
+     * updated as the batch goes: an account is skipped if its holder already
+     * has an account of the same type, or a checking account for a checking
+     * family account, either in the database or earlier in the batch. The
+     * first occurrence in the batch wins.
+     *
+     * @param accounts The accounts to be opened, in order.
+     * @return For each account, true if it was opened, false if it was a
+     *         duplicate.
+     */
+    public boolean[] openAll(List<Account> accounts) {
+        boolean[] opened = new boolean[accounts.size()];
+        Journal journal = this.journal;
+        long sequence = 0;
+        long stamp = structure.writeLock();
+        try {
+            store.ensureCapacity(store.size() + accounts.size());
+            index.ensureCapacity(index.size() + accounts.size());
+            for (int i = 0; i < opened.length; i++) {
+                Account account = accounts.get(i);
+                if (isDuplicate(account)) {
+                    continue;
+                }
+                store.allocate(account);
+                index.put(account);
+                sorted.add(account);
+                if (journal != null) {
+                    sequence = journal.appendOpen(account);
+                }
+                opened[i] = true;
+            }
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        if (journal != null) {
+            journal.commit(sequence);
+            journal.endBatch();
         }
+        return opened;
     }
 
     /**
-     * Removes a specific account from the database.
+     * Checks if the holder of an account already has an account of the same
+     * type, or a checking account for a checking family account. The caller
+     * must hold the write lock of the structure.
+     *
+     * @param account The account to be opened.
+     * @return true if opening the account would make a duplicate.
+     */
+    private boolean isDuplicate(Account account) {
+        Profile holder = account.getHolder();
+        AccountType type = account.getType();
+        return index.get(holder, type) != null
+                || (type.isChecking() && index.get(holder, type.sibling()) != null);
+    }
+
+    /**
+     * Removes a specific account from the database. The slot of the account
+     * is marked closed and kept for reuse, and the segments are compacted
+     * once too many of their slots are closed.
      *
      * @param account The account to be removed.
      * @return true if the account was removed successfully, false otherwise.
      */
     public boolean close(Account account) {
-        int index = findExact(account);
-        if (index == Constants.NOT_FOUND)
-            return false;
-        for (int i = index; i < numAcct - 1; i++) {
-            accounts[i] = accounts[i + 1];
+        Journal journal = this.journal;
+        long sequence = 0;
+        long stamp = structure.writeLock();
+        try {
+            Account found = index.remove(account.getHolder(), account.getType());
+            if (found == null)
+                return false;
+            if (journal != null) {
+                sequence = journal.appendClose(found.getHolder(), found.getType());
+            }
+            sorted.remove(found);
+            ReentrantLock lock = store.lock(found.slot);
+            lock.lock();
+            try {
+                store.release(found.slot);
+            } finally {
+                lock.unlock();
+            }
+            if (store.shouldCompact()) {
+                store.compact();
+            }
+        } finally {
+            structure.unlockWrite(stamp);
         }
-        numAcct--;
-        accounts[numAcct] = null;
+        commit(journal, sequence);
         return true;
     }
 
@@ -170,20 +552,43 @@ public class AccountDatabase {
      * @return true if the withdrawal was successful, false otherwise.
      */
     public boolean withdraw(Account account) {
-        int index = findExact(account);
-        if (index == Constants.NOT_FOUND) {
+        int result = withdraw(account.getHolder(), account.getType(), account.getBalance());
+        if (result == Constants.NOT_FOUND) {
             account.setBalance(Constants.NOT_FOUND);
             return false; // Account not found
         }
-        if (accounts[index].balance < account.getBalance()) {
-            return false; // Insufficient funds
+        return result == Constants.TRANSACTION_DONE;
+    } // false if insufficient fund
+
+    /**
+     * Withdraws an amount from the account of the given type held by the
+     * given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the
+     *         account is not in the database.
+     */
+    public int withdraw(Profile holder, AccountType type, long amount) {
+        Journal journal = this.journal;
+        long sequence = 0;
+        int result;
+        long stamp = beginPosting(journal);
+        try {
+            Account found = locate(holder, type, stamp);
+            result = found == null ? Constants.NOT_FOUND : store.withdraw(found.slot, amount);
+            if (result == Constants.TRANSACTION_DONE && journal != null) {
+                sequence = journal.appendPosting(CommandType.WITHDRAW, holder, type, amount);
+            }
+        } finally {
+            endPosting(stamp);
         }
-        accounts[index].balance -= account.getBalance(); // Deduct the amount from the balance
-        if (accounts[index] instanceof MoneyMarket) {
-            ((MoneyMarket) accounts[index]).incrementWithdrawals();
+        if (sequence != 0) {
+            journal.commit(sequence);
         }
-        return true;
-    } // false if insufficient fund
+        return result;
+    }
 
     /**
      * Processes a deposit operation on a specific account.
@@ -192,169 +597,221 @@ public class AccountDatabase {
      *                account object represents the amount to be deposited.
      */
     public void deposit(Account account) {
-        int index = findExact(account);
-        if (index != Constants.NOT_FOUND) {
-            accounts[index].balance += account.getBalance(); // Update the balance
+        if (deposit(account.getHolder(), account.getType(), account.getBalance()) == Constants.TRANSACTION_DONE) {
             account.setBalance(Constants.ACCOUNT_FOUND);
         }
     }
 
     /**
-     * Sorts the accounts in the database based on their type and profile.
-     */
-    private void sortAccounts() {
-        for (int i = 0; i < numAcct - 1; i++) {
-            for (int j = 0; j < numAcct - i - 1; j++) {
-                String type1 = accounts[j].getClass().getName();
-                String type2 = accounts[j + 1].getClass().getName();
-                int cmpType = type1.compareTo(type2);
-                if (cmpType > 0) {
-                    Account temp = accounts[j];
-                    accounts[j] = accounts[j + 1];
-                    accounts[j + 1] = temp;
-                } else if (cmpType == 0) {
-                    Profile profile1 = accounts[j].getHolder();
-                    Profile profile2 = accounts[j + 1].getHolder();
-                    int cmpProfile = profile1.compareTo(profile2);
-                    if (cmpProfile > 0) {
-                        Account temp = accounts[j];
-                        accounts[j] = accounts[j + 1];
-                        accounts[j + 1] = temp;
-                    }
-                }
+     * Deposits an amount into the account of the given type held by the
+     * given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be deposited, in cents.
+     * @return TRANSACTION_DONE, or NOT_FOUND if the account is not in the
+     *         database.
+     */
+    public int deposit(Profile holder, AccountType type, long amount) {
+        Journal journal = this.journal;
+        long sequence;
+        long stamp = beginPosting(journal);
+        try {
+            Account found = locate(holder, type, stamp);
+            if (found == null || !store.deposit(found.slot, amount)) {
+                return Constants.NOT_FOUND;
             }
+            sequence = journal == null ? 0 : journal.appendPosting(CommandType.DEPOSIT, holder, type, amount);
+        } finally {
+            endPosting(stamp);
         }
+        commit(journal, sequence);
+        return Constants.TRANSACTION_DONE;
     }
 
     /**
-     * Prints the sorted list of accounts to the console.
-     */
-    public void printSorted(TextArea outputArea) {
-        sortAccounts();
-        if (numAcct == 0) {
-            outputArea.appendText("Account Database is empty!\n");
-        } else {
-            DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
-            outputArea.appendText("\n*Accounts sorted by account type and profile.\n");
-            for (int i = 0; i < numAcct; i++) {
-                Account index = accounts[i];
-                if (index instanceof MoneyMarket) {
-                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()));
-                    if (((MoneyMarket) index).isLoyal()) {
-                        outputArea.appendText("::is loyal");
-                    }
-                    outputArea.appendText("::withdrawal: 0");
-                } else if (index instanceof Savings) {
-                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
-                            + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()));
-                    if (((Savings) index).isLoyal()) {
-                        outputArea.appendText("::is loyal");
-                    }
+     * Moves money from one account to another. Both accounts are looked up
+     * once and both legs are applied under the locks of both slots, so that
+     * a concurrent close can never leave the money withdrawn but not
+     * deposited; should the deposit fail anyway, the withdrawal is reversed.
+     * The transfer is not atomic to readers: getAccount may see the money
+     * withdrawn but not yet deposited.
+     *
+     * @param from   The account to withdraw from, found by exact type.
+     * @param to     The account to deposit into, found by exact type.
+     * @param amount The amount to be moved, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if either
+     *         account is not in the database.
+     */
+    public int transfer(Account from, Account to, long amount) {
+        Journal journal = this.journal;
+        long sequence = 0;
+        int result;
+        long stamp = beginPosting(journal);
+        try {
+            Account source = locate(from.getHolder(), from.getType(), stamp);
+            Account target = locate(to.getHolder(), to.getType(), stamp);
+            if (source == null || target == null) {
+                return Constants.NOT_FOUND;
+            }
+            result = store.transfer(source.slot, target.slot, amount);
+            if (result == Constants.TRANSACTION_DONE && journal != null) {
+                sequence = journal.appendTransfer(source, target, amount);
+            }
+        } finally {
+            endPosting(stamp);
+        }
+        if (sequence != 0) {
+            journal.commit(sequence);
+        }
+        return result;
+    }
+
+    /**
+     * Posts a batch of deposits and withdrawals in order. Each distinct
+     * account is looked up once for the whole batch, and a run of deposits
+     * to the same account is posted with a single update.
+     *
+     * @param batch The operations to be posted.
+     * @return The result of each operation, by position in the batch:
+     *         TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the
+     *         account is not in the database.
+     */
+    public int[] post(TransactionBatch batch) {
+        Journal journal = this.journal;
+        long sequence = 0;
+        int[] results;
+        long stamp = beginPosting(journal);
+        try {
+            results = postAll(batch, journal, stamp);
+            sequence = journal == null ? 0 : journal.lastSequence();
+        } finally {
+            endPosting(stamp);
+        }
+        if (journal != null) {
+            journal.commit(sequence);
+            journal.endBatch();
+        }
+        return results;
+    }
 
-                } else if (index instanceof CollegeChecking) {
-                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()) + "::" + ((CollegeChecking) index).getCampus());
-                } else if (index instanceof Checking) {
-                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
-                            + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()));
+    /**
+     * Posts a batch of deposits and withdrawals in order and appends the
+     * record of each one applied.
+     *
+     * @param batch   The operations to be posted.
+     * @param journal The journal of the database, or null.
+     * @param stamp   The stamp returned by beginPosting.
+     * @return The result of each operation, by position in the batch.
+     */
+    private int[] postAll(TransactionBatch batch, Journal journal, long stamp) {
+        int size = batch.size();
+        int[] slots = new int[size];
+        AccountIndex resolved = new AccountIndex();
+        for (int i = 0; i < size; i++) {
+            Profile holder = batch.holder(i);
+            AccountType type = batch.type(i);
+            Account found = resolved.get(holder, type);
+            if (found == null) {
+                found = locate(holder, type, stamp);
+                if (found != null) {
+                    resolved.put(found);
                 }
-                if (index != null) {outputArea.appendText("\n");}
             }
-            outputArea.appendText("*end of list.\n\n");
+            slots[i] = found == null ? Constants.NOT_FOUND : found.slot;
         }
+        int[] results = new int[size];
+        int i = 0;
+        while (i < size) {
+            int slot = slots[i];
+            if (slot == Constants.NOT_FOUND) {
+                results[i++] = Constants.NOT_FOUND;
+            } else if (batch.isWithdrawal(i)) {
+                results[i] = store.withdraw(slot, batch.amount(i));
+                if (results[i] == Constants.TRANSACTION_DONE && journal != null) {
+                    journal.appendPosting(CommandType.WITHDRAW, batch.holder(i), batch.type(i), batch.amount(i));
+                }
+                i++;
+            } else {
+                int end = i;
+                long amount = 0;
+                while (end < size && slots[end] == slot && !batch.isWithdrawal(end)) {
+                    amount += batch.amount(end++);
+                }
+                int result = store.deposit(slot, amount) ? Constants.TRANSACTION_DONE : Constants.NOT_FOUND;
+                if (result == Constants.TRANSACTION_DONE && journal != null) {
+                    journal.appendPosting(CommandType.DEPOSIT, batch.holder(i), batch.type(i), amount);
+                }
+                Arrays.fill(results, i, end, result);
+                i = end;
+            }
+        }
+        return results;
     }
 
     /**
-     * Prints detailed account information including fees and monthly interests.
-     */
-    public void printFeesAndInterests(TextArea outputArea) {
-        sortAccounts();
-        if (numAcct == 0) {
-            outputArea.appendText("Account Database is empty!\n");
-        } else {
-            DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
-            outputArea.appendText("\n*list of accounts with fee and monthly interest\n");
-            for (Account index : accounts) {
-                if (index instanceof MoneyMarket) {
-                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()));
-                    if (((MoneyMarket) index).isLoyal())
-                        outputArea.appendText("::is loyal");
-                    outputArea.appendText("::withdrawal: " + ((MoneyMarket) index).getWithdrawals() + "::fee $"
-                            + decimalFormat.format(index.monthlyFee()) + "::monthly interest $"
-                            + decimalFormat.format(index.monthlyInterest()));
-                } else if (index instanceof Savings) {
-                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
-                            + " " + index.getHolder().getDob() + "::Balance $" + decimalFormat.format(index.getBalance()));
-                    if (((Savings) index).isLoyal())
-                        outputArea.appendText("::is loyal");
-                    outputArea.appendText("::fee $" + decimalFormat.format(index.monthlyFee()) + "::monthly interest $"
-                            + decimalFormat.format(index.monthlyInterest()));
-                } else if (index instanceof CollegeChecking) {
-                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()) + "::" + ((CollegeChecking) index).getCampus()
-                            + "::fee $" + decimalFormat.format(index.monthlyFee()) + "::monthly interest $"
-                            + decimalFormat.format(index.monthlyInterest()));
-                } else if (index instanceof Checking) {
-                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(index.getBalance()) + "::fee $"
-                            + decimalFormat.format(index.monthlyFee()) + "::monthly interest $"
-                            + decimalFormat.format(index.monthlyInterest()));}
-                if (index != null) {outputArea.appendText("\n");}
+     * Closes the month: adds the monthly interest and takes the monthly fee
+     * of every account, and resets the Money Market withdrawal counts. The
+     * store is split into ranges of slots closed in parallel with fork/join,
+     * which gives the same balances as closing the accounts one by one.
+     * Opening and closing accounts waits for the close; deposits and
+     * withdrawals must not run meanwhile, which holds on the thread of a
+     * TransactionPipeline writer.
+     *
+     * @return The totals of the close, per account type.
+     */
+    public MonthEndTotals closeMonth() {
+        Journal journal = this.journal;
+        long sequence = 0;
+        MonthEndTotals totals;
+        long stamp = structure.writeLock();
+        try {
+            totals = ForkJoinPool.commonPool().invoke(new MonthEndTask(store, 0, store.slotCount()));
+            if (journal != null) {
+                sequence = journal.appendMonthEnd();
             }
-            outputArea.appendText("*end of list.\n\n");
+        } finally {
+            structure.unlockWrite(stamp);
         }
+        commit(journal, sequence);
+        return totals;
     }
 
     /**
-     * Prints the accounts after applying the monthly fees and interests to their balances.
-     */
-    public void printUpdatedBalances(TextArea outputArea) {
-        sortAccounts();
-        if (numAcct == 0) {
-            outputArea.appendText("Account Database is empty!\n");
-        } else {
-            DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
-            outputArea.appendText("\n*list of accounts with fees and interests applied.\n");
-            for (Account index : accounts) {
-                double updatedBalance = 0;
-                if (index != null)
-                    updatedBalance = index.getBalance() + index.monthlyInterest() - index.monthlyFee();
-                if (index instanceof MoneyMarket) {
-                    ((MoneyMarket) index).resetWithdrawals();
-                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(updatedBalance));
-                    if (((MoneyMarket) index).isLoyal())
-                        outputArea.appendText("::is loyal");
-                    outputArea.appendText("::withdrawal: " + ((MoneyMarket) index).getWithdrawals());
-                } else if (index instanceof Savings) {
-                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(updatedBalance));
-                    if (((Savings) index).isLoyal())
-                        outputArea.appendText("::is loyal");
-                    outputArea.appendText("");
-                } else if (index instanceof CollegeChecking) {
-                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
-                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(updatedBalance) + "::" + ((CollegeChecking) index).getCampus());
-                } else if (index instanceof Checking) {
-                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
-                            + " " + index.getHolder().getDob() + "::Balance $"
-                            + decimalFormat.format(updatedBalance));
-                }
-                if (index != null) {outputArea.appendText("\n");}
+     * Closes the month of a range of slots, splitting the range in halves at
+     * segment boundaries until it is small enough to be closed in one task.
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static final class MonthEndTask extends RecursiveTask<MonthEndTotals> {
+        private final AccountStore store; // store holding the slots
+        private final int from; // first slot of the range
+        private final int to; // end of the range, exclusive
+
+        /**
+         * Creates a task closing a range of slots.
+         *
+         * @param store The store holding the slots.
+         * @param from  The first slot of the range.
+         * @param to    The end of the range, exclusive.
+         */
+        MonthEndTask(AccountStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MonthEndTotals compute() {
+            if (to - from > Constants.MONTH_END_GRAIN) {
+                int middle = ((from + to) >>> 1) & -Constants.SEGMENT_SIZE;
+                MonthEndTask right = new MonthEndTask(store, middle, to);
+                right.fork();
+                MonthEndTotals totals = new MonthEndTask(store, from, middle).compute();
+                return totals.merge(right.join());
             }
-            outputArea.appendText("*end of list.\n\n");
+            MonthEndTotals totals = new MonthEndTotals();
+            store.closeMonth(from, to, totals);
+            return totals;
         }
     }
 }
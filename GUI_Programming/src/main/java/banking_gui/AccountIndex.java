@@ -0,0 +1,259 @@
+package banking_gui;
+
+import java.util.Arrays;
+
+/**
+ * Hash index over the accounts in the AccountDatabase, keyed on the holder's
+ * first name, last name and date of birth (names compared ignoring case)
+ * plus the account type. Uses open addressing with linear probing so that
+ * lookups do not allocate. Lookups tolerate a concurrent update without
+ * failing, but their result is only meaningful if no update overlapped it.
+ *
+ * @author Altay Ozkan
+ */
+public class AccountIndex {
+    private Account[] table; // accounts by probe position, null if empty
+    private int[] hashes; // cached key hash of each entry in the table
+    private int size; // number of accounts in the index
+
+    /**
+     * Default constructor initializes the index with a default initial
+     * capacity.
+     */
+    public AccountIndex() {
+        this(0);
+    }
+
+    /**
+     * Initializes the index with enough capacity for the expected number of
+     * accounts.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public AccountIndex(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        this.table = new Account[capacity];
+        this.hashes = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Makes sure the index can hold the expected number of accounts without
+     * rehashing.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > table.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Computes the table capacity needed for a number of accounts.
+     *
+     * @param expectedSize The expected number of accounts.
+     * @return The capacity, a power of two.
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = Constants.INDEX_INITIAL_CAPACITY;
+        while (capacity < expectedSize * Constants.INDEX_LOAD_FACTOR) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Gets the number of accounts in the index.
+     *
+     * @return The number of accounts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the account of the given type held by the given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The account if found, otherwise returns null.
+     */
+    public Account get(Profile holder, AccountType type) {
+        int hash = hash(holder, type);
+        Account[] table = this.table;
+        int[] hashes = this.hashes;
+        if (table.length != hashes.length) {
+            return null; // resized during the lookup
+        }
+        int mask = table.length - 1;
+        int i = hash & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            Account account = table[i];
+            if (account == null) {
+                break;
+            }
+            if (hashes[i] == hash && matches(account, holder, type)) {
+                return account;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adds an account to the index. An account already indexed under the
+     * same holder and type is replaced.
+     *
+     * @param account The account to be added.
+     */
+    public void put(Account account) {
+        if ((size + 1) * Constants.INDEX_LOAD_FACTOR > table.length) {
+            resize(table.length * 2);
+        }
+        Profile holder = account.getHolder();
+        AccountType type = account.getType();
+        int hash = hash(holder, type);
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != null) {
+            if (hashes[i] == hash && matches(table[i], holder, type)) {
+                table[i] = account;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = account;
+        hashes[i] = hash;
+        size++;
+    }
+
+    /**
+     * Removes the account of the given type held by the given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The removed account, or null if it was not in the index.
+     */
+    public Account remove(Profile holder, AccountType type) {
+        int hash = hash(holder, type);
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != null) {
+            if (hashes[i] == hash && matches(table[i], holder, type)) {
+                Account removed = table[i];
+                deleteAt(i);
+                size--;
+                return removed;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes every account from the index.
+     */
+    public void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+    }
+
+    /**
+     * Empties a probe position and shifts back any entries of the same
+     * probe run so that lookups never stop early at the hole.
+     *
+     * @param hole The probe position to empty.
+     */
+    private void deleteAt(int hole) {
+        int mask = table.length - 1;
+        int i = (hole + 1) & mask;
+        while (table[i] != null) {
+            int home = hashes[i] & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hashes[hole] = hashes[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        table[hole] = null;
+    }
+
+    /**
+     * Rehashes every entry into a table of the given capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        Account[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new Account[capacity];
+        hashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldTable.length; j++) {
+            if (oldTable[j] != null) {
+                int i = oldHashes[j] & mask;
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = oldTable[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    /**
+     * Checks if an account belongs to the given holder and is of the given
+     * type.
+     *
+     * @param account The indexed account.
+     * @param holder  The profile of the account holder.
+     * @param type    The account type.
+     * @return true if the account matches, false otherwise.
+     */
+    private static boolean matches(Account account, Profile holder, AccountType type) {
+        Profile other = account.getHolder();
+        return account.getType() == type && other != null
+                && other.getFname().equalsIgnoreCase(holder.getFname())
+                && other.getLname().equalsIgnoreCase(holder.getLname())
+                && other.getDob().equals(holder.getDob());
+    }
+
+    /**
+     * Computes the key hash of a holder and account type without allocating
+     * upper case copies of the names.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The key hash.
+     */
+    static int hash(Profile holder, AccountType type) {
+        int h = hashIgnoreCase(holder.getFname());
+        h = 31 * h + hashIgnoreCase(holder.getLname());
+        Date dob = holder.getDob();
+        h = 31 * h + dob.getYear();
+        h = 31 * h + dob.getMonth();
+        h = 31 * h + dob.getDay();
+        h = 31 * h + type.ordinal();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    /**
+     * Computes a hash of a string that is consistent with equalsIgnoreCase.
+     *
+     * @param s The string to hash.
+     * @return The hash of the string.
+     */
+    private static int hashIgnoreCase(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return h;
+    }
+}
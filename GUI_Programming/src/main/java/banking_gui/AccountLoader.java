@@ -0,0 +1,374 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads accounts from a text file with one account per line, in the form
+ * type,first name,last name,date of birth,balance[,campus or loyalty code].
+ * The file is memory-mapped and split at line boundaries into chunks, which
+ * are parsed and validated in parallel on a ForkJoinPool, each line in place
+ * through a reusable CsvRecord. Duplicate checks are deferred until the whole
+ * file is parsed: the valid accounts are then opened as one batch, in file
+ * order, and the accounts already in the database or earlier in the file are
+ * rejected in the same pass. Loading stops at the first empty line,
+ * and every line produces the same message as when loaded one at a time.
+ *
+ * @author Altay Ozkan
+ */
+public final class AccountLoader {
+    /**
+     * AccountLoader only provides static methods and is not instantiated.
+     */
+    private AccountLoader() {
+    }
+
+    /**
+     * Loads the accounts of a text file into a database.
+     *
+     * @param path     The account file.
+     * @param database The database to open the accounts in.
+     * @param messages Receives one message per rejected line.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void load(Path path, AccountRepository database, StringBuilder messages) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Chunk[] chunks = split(channel);
+            if (chunks.length == 0) {
+                return;
+            }
+            Date today = Date.today();
+            ForkJoinPool.commonPool().invoke(new ParseTask(channel, chunks, 0, chunks.length, today));
+            for (Chunk chunk : chunks) {
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+            }
+            merge(chunks, database, messages);
+        }
+    }
+
+    /**
+     * Splits a file into chunks that end right after a line feed, except for
+     * the last one. Each thread of the pool gets a few chunks so that uneven
+     * chunks still balance out.
+     *
+     * @param channel The account file.
+     * @return The chunks, in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Chunk[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = Math.max(Constants.LOAD_MIN_CHUNK_BYTES,
+                size / ((long) ForkJoinPool.getCommonPoolParallelism() * Constants.LOAD_CHUNKS_PER_THREAD));
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(Constants.LOAD_PROBE_BYTES);
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : lineEnd(channel, probe, start + target);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at byte " + start);
+            }
+            chunks.add(new Chunk(start, (int) (end - start)));
+            start = end;
+        }
+        return chunks.toArray(new Chunk[0]);
+    }
+
+    /**
+     * Finds the position right after the first line feed at or after a
+     * position.
+     *
+     * @param channel  The account file.
+     * @param probe    A buffer to read through.
+     * @param position The position to search from.
+     * @return The position after the line feed, or the file size if there is
+     *         none.
+     * @throws IOException if the file cannot be read.
+     */
+    private static long lineEnd(FileChannel channel, ByteBuffer probe, long position) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Opens the valid accounts of all chunks as one batch, then adds the
+     * message of each rejected or duplicate line in file order. Chunks after
+     * an empty line are left out.
+     *
+     * @param chunks   The parsed chunks, in file order.
+     * @param database The database to open the accounts in.
+     * @param messages Receives one message per rejected line.
+     */
+    private static void merge(Chunk[] chunks, AccountRepository database, StringBuilder messages) {
+        ArrayList<Account> valid = new ArrayList<>();
+        int last = 0;
+        while (last < chunks.length) {
+            for (Account account : chunks[last].accounts) {
+                if (account != null) {
+                    valid.add(account);
+                }
+            }
+            if (chunks[last++].stopped) {
+                break;
+            }
+        }
+        boolean[] opened = database.openAll(valid);
+        int next = 0;
+        for (int c = 0; c < last; c++) {
+            Chunk chunk = chunks[c];
+            for (int i = 0; i < chunk.accounts.size(); i++) {
+                Account account = chunk.accounts.get(i);
+                if (account == null) {
+                    messages.append(chunk.messages.get(i));
+                } else if (!opened[next++]) {
+                    Profile profile = account.getHolder();
+                    messages.append(profile.getFname()).append(' ').append(profile.getLname()).append(' ')
+                            .append(profile.getDob()).append('(').append(account.getType().code())
+                            .append(") is already in the database.\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a line of an account file into a chunk.
+     *
+     * @param line  The line, without its terminator.
+     * @param today Today's date.
+     * @param chunk Receives the account, or the message if it is rejected.
+     */
+    private static void parseLine(CsvRecord line, Date today, Chunk chunk) {
+        try {
+            if (line.fieldCount() == 5 || line.fieldCount() == 6) {
+                parseFields(line, today, chunk);
+            } else {
+                chunk.reject("Invalid account data format: " + line + "\n");
+            }
+        } catch (Exception e) {
+            chunk.reject("Error processing account data: " + line + ". Error: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Validates the fields of a line and creates its account. The names are
+     * only turned into text once the account is valid.
+     *
+     * @param line  The line, tokenized.
+     * @param today Today's date.
+     * @param chunk Receives the account, or the message if it is rejected.
+     */
+    private static void parseFields(CsvRecord line, Date today, Chunk chunk) {
+        try {
+            Date dob = line.dateField(3);
+            if (!dob.isValid()) {
+                chunk.reject("DOB invalid: " + dob + " not a valid calendar date!\n");
+                return;
+            }
+            if (dob.compareTo(today) >= 0) {
+                chunk.reject("DOB invalid: " + dob + " cannot be today or a future day.\n");
+                return;
+            }
+            long balance = line.centsField(4);
+            if (balance <= 0) {
+                chunk.reject("Initial deposit cannot be 0 or negative.\n");
+                return;
+            }
+            boolean college = line.fieldEquals(0, "CC");
+            boolean savings = line.fieldEquals(0, "S");
+            int code = college || savings ? line.intField(5) : 0;
+            if (dob.getAge() < 16) {
+                chunk.reject("DOB invalid: " + dob + " under 16.\n");
+                return;
+            }
+            if (college) {
+                if (dob.getAge() >= 24) {
+                    chunk.reject("DOB invalid: " + dob + " over 24.\n");
+                } else if (code < 0 || code > 2) {
+                    chunk.reject("Invalid campus code.\n");
+                } else {
+                    chunk.accept(new CollegeChecking(profile(line, dob), balance, code));
+                }
+            } else if (savings) {
+                if (code != 0 && code != 1) {
+                    chunk.reject("Invalid loyalty code.\n");
+                } else {
+                    chunk.accept(new Savings(profile(line, dob), balance, code));
+                }
+            } else if (line.fieldEquals(0, "MM")) {
+                if (balance < Constants.MIN_BALANCE_LOYAL) {
+                    chunk.reject("Minimum of $2000 to open a Money Market account.\n");
+                } else {
+                    chunk.accept(new MoneyMarket(profile(line, dob), balance, 0));
+                }
+            } else {
+                chunk.accept(new Checking(profile(line, dob), balance));
+            }
+        } catch (NoSuchElementException e) {
+            chunk.reject("Missing data for opening an account.\n");
+        } catch (NumberFormatException e) {
+            chunk.reject("Not a valid amount.\n");
+        }
+    }
+
+    /**
+     * Creates the profile of a valid line.
+     *
+     * @param line The line, tokenized.
+     * @param dob  The parsed date of birth.
+     * @return The profile.
+     */
+    private static Profile profile(CsvRecord line, Date dob) {
+        return new Profile(line.field(1), line.field(2), dob);
+    }
+
+    /**
+     * A range of lines of the account file, and the outcome of each line
+     * once parsed: an account to open, or the message of a rejected line.
+     */
+    private static final class Chunk {
+        final long start; // position of the first byte in the file
+        final int length; // bytes in the chunk
+        final ArrayList<Account> accounts = new ArrayList<>(); // account per line, null if rejected
+        final ArrayList<String> messages = new ArrayList<>(); // message per line, null if accepted
+        boolean stopped; // true if the chunk holds an empty line, which ends the load
+        IOException failure; // error reading the chunk
+
+        /**
+         * Creates a chunk.
+         *
+         * @param start  The position of the first byte in the file.
+         * @param length The number of bytes in the chunk.
+         */
+        Chunk(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        /**
+         * Records the account of the next line.
+         *
+         * @param account The account to be opened.
+         */
+        void accept(Account account) {
+            accounts.add(account);
+            messages.add(null);
+        }
+
+        /**
+         * Records the next line as rejected.
+         *
+         * @param message The message explaining why.
+         */
+        void reject(String message) {
+            accounts.add(null);
+            messages.add(message);
+        }
+
+        /**
+         * Maps the chunk and parses its lines. A line ends at a line feed, a
+         * carriage return, or a carriage return followed by a line feed.
+         *
+         * @param channel The account file.
+         * @param today   Today's date.
+         */
+        void parse(FileChannel channel, Date today) {
+            MappedByteBuffer bytes;
+            try {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            CsvRecord line = new CsvRecord();
+            byte[] text = new byte[Constants.LOAD_PROBE_BYTES];
+            int from = 0;
+            while (from < length) {
+                int to = from;
+                while (to < length && bytes.get(to) != '\n' && bytes.get(to) != '\r') {
+                    to++;
+                }
+                if (to == from) {
+                    stopped = true;
+                    return;
+                }
+                if (!line.reset(bytes, from, to)) {
+                    if (text.length < to - from) {
+                        text = new byte[Math.max(to - from, text.length * 2)];
+                    }
+                    bytes.get(from, text, 0, to - from);
+                    line.reset(new String(text, 0, to - from, StandardCharsets.UTF_8));
+                }
+                parseLine(line, today, this);
+                from = to;
+                if (from < length && bytes.get(from) == '\r') {
+                    from++;
+                }
+                if (from < length && bytes.get(from) == '\n') {
+                    from++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a range of chunks, splitting it in halves until a single chunk
+     * is left.
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static final class ParseTask extends RecursiveAction {
+        private final FileChannel channel; // the account file
+        private final Chunk[] chunks; // all chunks of the file
+        private final int from; // first chunk of the range
+        private final int to; // end of the range, exclusive
+        private final Date today; // reference date of the validation
+
+        /**
+         * Creates a task parsing a range of chunks.
+         *
+         * @param channel The account file.
+         * @param chunks  All chunks of the file.
+         * @param from    The first chunk of the range.
+         * @param to      The end of the range, exclusive.
+         * @param today   Today's date.
+         */
+        ParseTask(FileChannel channel, Chunk[] chunks, int from, int to, Date today) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.today = today;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                chunks[from].parse(channel, today);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(channel, chunks, from, middle, today),
+                    new ParseTask(channel, chunks, middle, to, today));
+        }
+    }
+}
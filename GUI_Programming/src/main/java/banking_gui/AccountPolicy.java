@@ -0,0 +1,338 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The interest and fee rules of every account type, as a table indexed by
+ * the AccountType ordinal. Each row holds the annual rate, the loyalty bonus
+ * and how loyalty is earned, the balance under which the monthly fee is
+ * charged, and the fee for withdrawals over the monthly limit. Every account
+ * type is evaluated by the same code, picking its row instead of branching
+ * on its class.
+ * The defaults are the values of Constants. At startup they can be replaced
+ * by a properties file named by the banking.policy system property, with
+ * keys of the form code.rule, for example S.rate=40000 or MM.withdrawFee=1000,
+ * where the code is that of AccountType.code(). Rates are in millionths,
+ * amounts in cents, and the rules left out keep their defaults.
+ *
+ * @author Altay Ozkan
+ */
+public final class AccountPolicy {
+    private static volatile AccountPolicy current = defaults(); // policy in effect
+
+    private final long[] rates; // annual interest rate, in millionths
+    private final long[] loyaltyBonuses; // rate added for loyal accounts, in millionths
+    private final boolean[] loyaltyByStatus; // true if the loyal customer status earns the bonus
+    private final long[] loyalBalances; // balance from which an account is loyal, in cents
+    private final long[] noFeeBalances; // balance from which no monthly fee is charged, in cents
+    private final long[] fees; // monthly fee under the no-fee balance, in cents
+    private final int[] withdrawLimits; // withdrawals per month without a fee
+    private final long[] withdrawFees; // fee once over the withdrawal limit, in cents
+
+    /**
+     * Creates a policy with no interest and no fees for any account type.
+     */
+    private AccountPolicy() {
+        int types = AccountType.values().length;
+        rates = new long[types];
+        loyaltyBonuses = new long[types];
+        loyaltyByStatus = new boolean[types];
+        loyalBalances = new long[types];
+        noFeeBalances = new long[types];
+        fees = new long[types];
+        withdrawLimits = new int[types];
+        withdrawFees = new long[types];
+        for (int i = 0; i < types; i++) {
+            loyalBalances[i] = Long.MAX_VALUE;
+            noFeeBalances[i] = Long.MIN_VALUE;
+            withdrawLimits[i] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Creates the policy given by the values of Constants.
+     *
+     * @return The default policy.
+     */
+    public static AccountPolicy defaults() {
+        AccountPolicy policy = new AccountPolicy();
+        int checking = AccountType.CHECKING.ordinal();
+        policy.rates[checking] = Constants.CHECKING_ANNUAL_INTEREST_RATE;
+        policy.noFeeBalances[checking] = Constants.CHECKING_MIN_BALANCE_FOR_NO_FEE;
+        policy.fees[checking] = Constants.CHECKING_MONTHLY_FEE;
+
+        policy.rates[AccountType.COLLEGE_CHECKING.ordinal()] = Constants.CHECKING_ANNUAL_INTEREST_RATE;
+
+        int savings = AccountType.SAVINGS.ordinal();
+        policy.rates[savings] = Constants.SAVINGS_INTEREST;
+        policy.loyaltyBonuses[savings] = Constants.LOYAL_BONUS;
+        policy.loyaltyByStatus[savings] = true;
+        policy.noFeeBalances[savings] = Constants.NO_FEE_BALANCE;
+        policy.fees[savings] = Constants.SAVINGS_FEE;
+
+        int moneyMarket = AccountType.MONEY_MARKET.ordinal();
+        policy.rates[moneyMarket] = Constants.MM_INTEREST;
+        policy.loyaltyBonuses[moneyMarket] = Constants.LOYAL_BONUS;
+        policy.loyalBalances[moneyMarket] = Constants.MIN_BALANCE_LOYAL;
+        policy.noFeeBalances[moneyMarket] = Constants.MIN_BALANCE_LOYAL;
+        policy.fees[moneyMarket] = Constants.SAVINGS_FEE;
+        policy.withdrawLimits[moneyMarket] = Constants.WITHDRAW_LIMIT;
+        policy.withdrawFees[moneyMarket] = Constants.FEE_WITHDRAW_OVER_LIMIT;
+        return policy;
+    }
+
+    /**
+     * Loads a policy from a properties file, on top of the defaults.
+     *
+     * @param path The properties file.
+     * @return The policy.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a rule has an invalid value.
+     */
+    public static AccountPolicy load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        AccountPolicy policy = defaults();
+        for (AccountType type : AccountType.values()) {
+            int i = type.ordinal();
+            String prefix = type.code() + ".";
+            policy.rates[i] = readLong(properties, prefix + "rate", policy.rates[i]);
+            policy.loyaltyBonuses[i] = readLong(properties, prefix + "loyaltyBonus", policy.loyaltyBonuses[i]);
+            policy.loyaltyByStatus[i] = Boolean.parseBoolean(properties.getProperty(prefix + "loyaltyByStatus",
+                    Boolean.toString(policy.loyaltyByStatus[i])).trim());
+            policy.loyalBalances[i] = readLong(properties, prefix + "loyalBalance", policy.loyalBalances[i]);
+            policy.noFeeBalances[i] = readLong(properties, prefix + "noFeeBalance", policy.noFeeBalances[i]);
+            policy.fees[i] = readLong(properties, prefix + "fee", policy.fees[i]);
+            policy.withdrawLimits[i] = Math.toIntExact(
+                    readLong(properties, prefix + "withdrawLimit", policy.withdrawLimits[i]));
+            policy.withdrawFees[i] = readLong(properties, prefix + "withdrawFee", policy.withdrawFees[i]);
+            if (policy.rates[i] < 0 || policy.loyaltyBonuses[i] < 0) {
+                throw new IllegalArgumentException("Negative interest rate for " + type.code());
+            }
+            if (policy.withdrawLimits[i] < 0) {
+                throw new IllegalArgumentException("Negative withdrawal limit for " + type.code());
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Reads a rule of a properties file.
+     *
+     * @param properties   The properties file.
+     * @param key          The key of the rule.
+     * @param defaultValue The value if the rule is left out.
+     * @return The value of the rule.
+     * @throws IllegalArgumentException if the value is not an integer.
+     */
+    private static long readLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Gets the policy in effect.
+     *
+     * @return The current policy.
+     */
+    public static AccountPolicy current() {
+        return current;
+    }
+
+    /**
+     * Puts a policy in effect. This is meant for startup, before any account
+     * is opened.
+     *
+     * @param policy The policy to use from now on.
+     */
+    public static void install(AccountPolicy policy) {
+        current = policy;
+    }
+
+    /**
+     * Checks if an account is loyal: either its balance reaches the loyalty
+     * balance of its type, or its type rewards the loyal customer status and
+     * the account has it.
+     *
+     * @param type    The AccountType ordinal.
+     * @param balance The balance, in cents.
+     * @param status  The loyal customer status of the account.
+     * @return true if the account earns the loyalty bonus.
+     */
+    public boolean isLoyal(int type, long balance, boolean status) {
+        return status & loyaltyByStatus[type] | balance >= loyalBalances[type];
+    }
+
+    /**
+     * Calculates the monthly interest of an account.
+     *
+     * @param type    The AccountType ordinal.
+     * @param balance The balance, in cents.
+     * @param status  The loyal customer status of the account.
+     * @return The monthly interest, in cents.
+     * @throws ArithmeticException if the interest overflows a long.
+     */
+    public long monthlyInterest(int type, long balance, boolean status) {
+        long rate = rates[type] + (isLoyal(type, balance, status) ? loyaltyBonuses[type] : 0);
+        return Money.monthlyInterest(balance, rate, Constants.INTEREST_ROUNDING);
+    }
+
+    /**
+     * Calculates the monthly interest of an account for a projection, which
+     * must never fail: an interest that overflows a long counts as 0.
+     *
+     * @param type    The AccountType ordinal.
+     * @param balance The balance, in cents.
+     * @param status  The loyal customer status of the account.
+     * @return The monthly interest, in cents, or 0 if it overflows.
+     */
+    public long projectedInterest(int type, long balance, boolean status) {
+        long rate = rates[type] + (isLoyal(type, balance, status) ? loyaltyBonuses[type] : 0);
+        if (Math.abs(balance) > Long.MAX_VALUE / Math.max(rate, 1)) {
+            return 0;
+        }
+        return Money.monthlyInterest(balance, rate, Constants.INTEREST_ROUNDING);
+    }
+
+    /**
+     * Calculates the monthly fee of an account: the part due to its balance
+     * plus the part due to its withdrawals.
+     *
+     * @param type        The AccountType ordinal.
+     * @param balance     The balance, in cents.
+     * @param withdrawals The withdrawals of the month.
+     * @return The monthly fee, in cents.
+     */
+    public long monthlyFee(int type, long balance, int withdrawals) {
+        return balanceFee(type, balance) + withdrawalFee(type, withdrawals);
+    }
+
+    /**
+     * Calculates the part of the monthly fee due to the balance.
+     *
+     * @param type    The AccountType ordinal.
+     * @param balance The balance, in cents.
+     * @return The fee if the balance is under the no-fee balance, 0 otherwise.
+     */
+    public long balanceFee(int type, long balance) {
+        return balance < noFeeBalances[type] ? fees[type] : 0;
+    }
+
+    /**
+     * Calculates the part of the monthly fee due to the withdrawals.
+     *
+     * @param type        The AccountType ordinal.
+     * @param withdrawals The withdrawals of the month.
+     * @return The fee if the withdrawals are over the limit, 0 otherwise.
+     */
+    public long withdrawalFee(int type, int withdrawals) {
+        return withdrawals > withdrawLimits[type] ? withdrawFees[type] : 0;
+    }
+
+    /**
+     * Gets the highest annual rate an account can earn, loyalty included.
+     *
+     * @return The rate, in millionths.
+     */
+    long maxRate() {
+        long max = 0;
+        for (int i = 0; i < rates.length; i++) {
+            max = Math.max(max, rates[i] + loyaltyBonuses[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the annual rate of an account type.
+     *
+     * @param type The AccountType ordinal.
+     * @return The rate, in millionths.
+     */
+    long rate(int type) {
+        return rates[type];
+    }
+
+    /**
+     * Gets the loyalty bonus of an account type.
+     *
+     * @param type The AccountType ordinal.
+     * @return The bonus, in millionths.
+     */
+    long loyaltyBonus(int type) {
+        return loyaltyBonuses[type];
+    }
+
+    /**
+     * Checks if the loyal customer status earns the bonus for an account type.
+     *
+     * @param type The AccountType ordinal.
+     * @return true if the status counts.
+     */
+    boolean loyaltyByStatus(int type) {
+        return loyaltyByStatus[type];
+    }
+
+    /**
+     * Gets the balance from which an account type is loyal.
+     *
+     * @param type The AccountType ordinal.
+     * @return The balance, in cents.
+     */
+    long loyalBalance(int type) {
+        return loyalBalances[type];
+    }
+
+    /**
+     * Gets the balance from which an account type pays no monthly fee.
+     *
+     * @param type The AccountType ordinal.
+     * @return The balance, in cents.
+     */
+    long noFeeBalance(int type) {
+        return noFeeBalances[type];
+    }
+
+    /**
+     * Gets the monthly fee of an account type under its no-fee balance.
+     *
+     * @param type The AccountType ordinal.
+     * @return The fee, in cents.
+     */
+    long fee(int type) {
+        return fees[type];
+    }
+
+    /**
+     * Gets the withdrawals per month an account type makes without a fee.
+     *
+     * @param type The AccountType ordinal.
+     * @return The withdrawal limit.
+     */
+    int withdrawLimit(int type) {
+        return withdrawLimits[type];
+    }
+
+    /**
+     * Gets the fee of an account type once over its withdrawal limit.
+     *
+     * @param type The AccountType ordinal.
+     * @return The fee, in cents.
+     */
+    long withdrawFee(int type) {
+        return withdrawFees[type];
+    }
+}
@@ -0,0 +1,311 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import javafx.scene.control.TextArea;
+
+/**
+ * The operations of a database of banking accounts, whatever its storage.
+ * AccountDatabase keeps the accounts on the heap; MappedAccountDatabase
+ * keeps them in memory-mapped files. The controller, the AccountLoader and
+ * the TransactionPipeline work on either through this interface.
+ * Every backend follows the same family rules: a holder has at most one
+ * account of each type, and at most one of Checking and College Checking.
+ *
+ * @author Altay Ozkan
+ */
+public interface AccountRepository {
+    // Order of the accounts in the reports, by account type and then profile.
+    Comparator<Account> TYPE_PROFILE_ORDER =
+            Comparator.comparing(Account::getType).thenComparing(Account::getHolder);
+
+    /**
+     * Gets the number of accounts in the database.
+     *
+     * @return The number of accounts.
+     */
+    int size();
+
+    /**
+     * Checks if the database contains a specific account. A Checking and a
+     * College Checking account of the same holder match each other.
+     *
+     * @param account The account to check.
+     * @return true if the account exists, false otherwise.
+     */
+    boolean contains(Account account);
+
+    /**
+     * Retrieves an account by the holder's details and exact account type.
+     *
+     * @param account The account to find based on holder's details.
+     * @return The account if found, otherwise null.
+     */
+    Account getAccount(Account account);
+
+    /**
+     * Gets every account, ordered by account type and then profile.
+     *
+     * @return The accounts, in report order.
+     */
+    Iterable<Account> sorted();
+
+    /**
+     * Makes room for the expected number of accounts, so that loading them
+     * never grows the storage.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    void ensureCapacity(int expectedSize);
+
+    /**
+     * Adds a new account to the database, unless its holder already has an
+     * account of the same type, or a checking account for a checking family
+     * account.
+     *
+     * @param account The account to be added.
+     * @return true if the account was added, false if it was a duplicate.
+     */
+    boolean open(Account account);
+
+    /**
+     * Opens a batch of accounts in order, as by open. The first occurrence
+     * of a duplicate in the batch wins.
+     *
+     * @param accounts The accounts to be opened, in order.
+     * @return For each account, true if it was opened, false if it was a
+     *         duplicate.
+     */
+    default boolean[] openAll(List<Account> accounts) {
+        boolean[] opened = new boolean[accounts.size()];
+        for (int i = 0; i < opened.length; i++) {
+            opened[i] = open(accounts.get(i));
+        }
+        return opened;
+    }
+
+    /**
+     * Removes a specific account from the database.
+     *
+     * @param account The account to be removed, found by exact type.
+     * @return true if the account was removed, false if it was not found.
+     */
+    boolean close(Account account);
+
+    /**
+     * Processes a deposit operation on a specific account.
+     *
+     * @param account The account in which to deposit. The balance of this
+     *                account object represents the amount to be deposited,
+     *                and is set to ACCOUNT_FOUND once it is.
+     */
+    void deposit(Account account);
+
+    /**
+     * Processes a withdrawal operation on a specific account.
+     *
+     * @param account The account from which to withdraw. The balance of this
+     *                account object represents the amount to be withdrawn,
+     *                and is set to NOT_FOUND if the account is not found.
+     * @return true if the withdrawal was successful, false otherwise.
+     */
+    boolean withdraw(Account account);
+
+    /**
+     * Deposits an amount into the account of the given type held by the
+     * given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be deposited, in cents.
+     * @return TRANSACTION_DONE, or NOT_FOUND if the account is not in the
+     *         database.
+     */
+    int deposit(Profile holder, AccountType type, long amount);
+
+    /**
+     * Withdraws an amount from the account of the given type held by the
+     * given holder.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the
+     *         account is not in the database.
+     */
+    int withdraw(Profile holder, AccountType type, long amount);
+
+    /**
+     * Moves money from one account to another. The money is never lost: if
+     * it cannot be deposited, the withdrawal is reversed. A concurrent
+     * reader may see the money withdrawn but not yet deposited.
+     *
+     * @param from   The account to withdraw from, found by exact type.
+     * @param to     The account to deposit into, found by exact type.
+     * @param amount The amount to be moved, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if either
+     *         account is not in the database.
+     */
+    int transfer(Account from, Account to, long amount);
+
+    /**
+     * Closes the month: adds the monthly interest and takes the monthly fee
+     * of every account, and resets the Money Market withdrawal counts.
+     *
+     * @return The totals of the close, per account type.
+     */
+    MonthEndTotals closeMonth();
+
+    /**
+     * Marks the end of a batch of changes, such as a run of the pipeline.
+     */
+    void endBatch();
+
+    /**
+     * Writes a snapshot of every account that Snapshot.read can restore.
+     *
+     * @param path The snapshot file, replaced atomically.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeSnapshot(Path path) throws IOException;
+
+    /**
+     * Exports every account, in sorted order, to a binary account archive.
+     *
+     * @param path The archive file, replaced if it exists.
+     * @throws IOException if the archive cannot be written.
+     */
+    void exportAccounts(Path path) throws IOException;
+
+    /**
+     * Prints the sorted list of accounts to the console.
+     *
+     * @param outputArea The text area to print to.
+     */
+    default void printSorted(TextArea outputArea) {
+        if (size() == 0) {
+            outputArea.appendText("Account Database is empty!\n");
+        } else {
+            outputArea.appendText("\n*Accounts sorted by account type and profile.\n");
+            for (Account index : sorted()) {
+                if (index instanceof MoneyMarket) {
+                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()));
+                    if (((MoneyMarket) index).isLoyal()) {
+                        outputArea.appendText("::is loyal");
+                    }
+                    outputArea.appendText("::withdrawal: 0");
+                } else if (index instanceof Savings) {
+                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
+                            + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()));
+                    if (((Savings) index).isLoyal()) {
+                        outputArea.appendText("::is loyal");
+                    }
+
+                } else if (index instanceof CollegeChecking) {
+                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()) + "::" + ((CollegeChecking) index).getCampus());
+                } else if (index instanceof Checking) {
+                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
+                            + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()));
+                }
+                if (index != null) {outputArea.appendText("\n");}
+            }
+            outputArea.appendText("*end of list.\n\n");
+        }
+    }
+
+    /**
+     * Prints detailed account information including fees and monthly interests.
+     *
+     * @param outputArea The text area to print to.
+     */
+    default void printFeesAndInterests(TextArea outputArea) {
+        if (size() == 0) {
+            outputArea.appendText("Account Database is empty!\n");
+        } else {
+            outputArea.appendText("\n*list of accounts with fee and monthly interest\n");
+            for (Account index : sorted()) {
+                if (index instanceof MoneyMarket) {
+                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()));
+                    if (((MoneyMarket) index).isLoyal())
+                        outputArea.appendText("::is loyal");
+                    outputArea.appendText("::withdrawal: " + ((MoneyMarket) index).getWithdrawals() + "::fee $"
+                            + Money.format(index.monthlyFee()) + "::monthly interest $"
+                            + Money.format(index.monthlyInterest()));
+                } else if (index instanceof Savings) {
+                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
+                            + " " + index.getHolder().getDob() + "::Balance $" + Money.format(index.getBalance()));
+                    if (((Savings) index).isLoyal())
+                        outputArea.appendText("::is loyal");
+                    outputArea.appendText("::fee $" + Money.format(index.monthlyFee()) + "::monthly interest $"
+                            + Money.format(index.monthlyInterest()));
+                } else if (index instanceof CollegeChecking) {
+                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()) + "::" + ((CollegeChecking) index).getCampus()
+                            + "::fee $" + Money.format(index.monthlyFee()) + "::monthly interest $"
+                            + Money.format(index.monthlyInterest()));
+                } else if (index instanceof Checking) {
+                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(index.getBalance()) + "::fee $"
+                            + Money.format(index.monthlyFee()) + "::monthly interest $"
+                            + Money.format(index.monthlyInterest()));}
+                if (index != null) {outputArea.appendText("\n");}
+            }
+            outputArea.appendText("*end of list.\n\n");
+        }
+    }
+
+    /**
+     * Closes the month, applying the monthly fees and interests to the
+     * balances, and prints the accounts with their new balances.
+     *
+     * @param outputArea The text area to print to.
+     */
+    default void printUpdatedBalances(TextArea outputArea) {
+        if (size() == 0) {
+            outputArea.appendText("Account Database is empty!\n");
+        } else {
+            closeMonth();
+            outputArea.appendText("\n*list of accounts with fees and interests applied.\n");
+            for (Account index : sorted()) {
+                long updatedBalance = index.getBalance();
+                if (index instanceof MoneyMarket) {
+                    outputArea.appendText("Money Market::Savings::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(updatedBalance));
+                    if (((MoneyMarket) index).isLoyal())
+                        outputArea.appendText("::is loyal");
+                    outputArea.appendText("::withdrawal: " + ((MoneyMarket) index).getWithdrawals());
+                } else if (index instanceof Savings) {
+                    outputArea.appendText("Savings::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(updatedBalance));
+                    if (((Savings) index).isLoyal())
+                        outputArea.appendText("::is loyal");
+                    outputArea.appendText("");
+                } else if (index instanceof CollegeChecking) {
+                    outputArea.appendText("College Checking::" + index.getHolder().getFname() + " "
+                            + index.getHolder().getLname() + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(updatedBalance) + "::" + ((CollegeChecking) index).getCampus());
+                } else if (index instanceof Checking) {
+                    outputArea.appendText("Checking::" + index.getHolder().getFname() + " " + index.getHolder().getLname()
+                            + " " + index.getHolder().getDob() + "::Balance $"
+                            + Money.format(updatedBalance));
+                }
+                if (index != null) {outputArea.appendText("\n");}
+            }
+            outputArea.appendText("*end of list.\n\n");
+        }
+    }
+}
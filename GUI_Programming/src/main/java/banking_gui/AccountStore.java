@@ -0,0 +1,864 @@
+package banking_gui;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Backing store of the AccountDatabase. The data of the accounts is kept in
+ * parallel primitive arrays (struct of arrays) split into fixed-size
+ * segments, and the Account objects stored here are views over their slot.
+ * Closed slots are kept on a free list for reuse, unless the store is shared
+ * between threads, in which case slots are never recycled or moved.
+ * Balances and withdrawal counts are updated with compare-and-set, so
+ * deposits and withdrawals never lock. Operations spanning several columns
+ * or slots lock the striped lock of each slot.
+ * An account whose deposits keep contending on its balance is promoted to
+ * a hot account. Its deposits are then spread over striped cells that are
+ * folded into the balance on withdrawal, month end or close.
+ * Every change to an open slot is also added to the Portfolio of the store,
+ * which keeps the totals of the accounts, and every change of the balance
+ * held in the column of a slot moves its entry in the BalanceIndex. Only
+ * one thread at a time moves the entry of a slot: a thread changing the
+ * balance while another is moving the entry leaves it to that thread,
+ * which checks the balance again before it stops.
+ *
+ * @author Altay Ozkan
+ */
+public final class AccountStore {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[][].class);
+
+    private Account[][] accounts; // account view of each slot, null for a closed slot
+    private long[][] balances; // balance of each slot, in cents
+    private byte[][] types; // AccountType ordinal of each slot
+    private long[][] loyalty; // loyal customer status, one bit per slot
+    private int[][] withdrawals; // Money Market withdrawal count of each slot
+    private byte[][] campuses; // Campus ordinal of each slot
+    private long[][][] hotCells; // deposit cells of each hot slot, null if not hot
+    private int[][] contention; // contended deposits of each slot
+    private BalanceIndex.Entry[][] entries; // balance index entry of each slot, null if not indexed
+    private int[][] indexing; // INDEX_IDLE, INDEX_RUNNING or INDEX_DIRTY for each slot
+    private int numSegments; // number of segments allocated
+    private int numSlots; // number of slots used, open or closed
+    private int[] freeSlots; // stack of closed slots available for reuse
+    private int numFree; // number of closed slots on the stack
+    private int size; // number of open slots
+    private final boolean recycleSlots; // false if slots must keep their account
+    private final ReentrantLock[] locks; // striped locks guarding the columns of the slots
+    private final Portfolio portfolio; // running totals of the open slots
+    private final BalanceIndex index; // open slots ordered by balance
+
+    /**
+     * Initializes the store with enough capacity for the expected number of
+     * accounts.
+     *
+     * @param expectedSize The expected number of accounts.
+     * @param recycleSlots true to reuse and compact closed slots, false if
+     *                     the store is shared between threads.
+     * @param portfolio    The totals to keep up to date.
+     * @param index        The balance index to keep up to date.
+     */
+    public AccountStore(int expectedSize, boolean recycleSlots, Portfolio portfolio, BalanceIndex index) {
+        this.accounts = new Account[Constants.INITIAL_CAPACITY][];
+        this.balances = new long[Constants.INITIAL_CAPACITY][];
+        this.types = new byte[Constants.INITIAL_CAPACITY][];
+        this.loyalty = new long[Constants.INITIAL_CAPACITY][];
+        this.withdrawals = new int[Constants.INITIAL_CAPACITY][];
+        this.campuses = new byte[Constants.INITIAL_CAPACITY][];
+        this.hotCells = new long[Constants.INITIAL_CAPACITY][][];
+        this.contention = new int[Constants.INITIAL_CAPACITY][];
+        this.entries = new BalanceIndex.Entry[Constants.INITIAL_CAPACITY][];
+        this.indexing = new int[Constants.INITIAL_CAPACITY][];
+        this.numSegments = 0;
+        this.numSlots = 0;
+        this.freeSlots = new int[Constants.INITIAL_CAPACITY];
+        this.numFree = 0;
+        this.size = 0;
+        this.recycleSlots = recycleSlots;
+        this.portfolio = portfolio;
+        this.index = index;
+        this.locks = new ReentrantLock[Constants.LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Gets the number of open slots.
+     *
+     * @return The number of accounts in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of slots used, open or closed. Every open slot is
+     * below this bound.
+     *
+     * @return The number of slots used.
+     */
+    public int slotCount() {
+        return numSlots;
+    }
+
+    /**
+     * Makes sure the store can hold the expected number of accounts without
+     * growing.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int needed = expectedSize - size + numSlots - numFree;
+        while (numSegments * Constants.SEGMENT_SIZE < needed) {
+            grow();
+        }
+    }
+
+    /**
+     * Increases the capacity by one segment. The slots already stored are
+     * never copied; only the arrays of segment references double when full.
+     */
+    private void grow() {
+        if (numSegments == accounts.length) {
+            int length = accounts.length * 2;
+            accounts = Arrays.copyOf(accounts, length);
+            balances = Arrays.copyOf(balances, length);
+            types = Arrays.copyOf(types, length);
+            loyalty = Arrays.copyOf(loyalty, length);
+            withdrawals = Arrays.copyOf(withdrawals, length);
+            campuses = Arrays.copyOf(campuses, length);
+            hotCells = Arrays.copyOf(hotCells, length);
+            contention = Arrays.copyOf(contention, length);
+            entries = Arrays.copyOf(entries, length);
+            indexing = Arrays.copyOf(indexing, length);
+        }
+        accounts[numSegments] = new Account[Constants.SEGMENT_SIZE];
+        balances[numSegments] = new long[Constants.SEGMENT_SIZE];
+        types[numSegments] = new byte[Constants.SEGMENT_SIZE];
+        loyalty[numSegments] = new long[Constants.SEGMENT_SIZE / Long.SIZE];
+        withdrawals[numSegments] = new int[Constants.SEGMENT_SIZE];
+        campuses[numSegments] = new byte[Constants.SEGMENT_SIZE];
+        hotCells[numSegments] = new long[Constants.SEGMENT_SIZE][];
+        contention[numSegments] = new int[Constants.SEGMENT_SIZE];
+        entries[numSegments] = new BalanceIndex.Entry[Constants.SEGMENT_SIZE];
+        indexing[numSegments] = new int[Constants.SEGMENT_SIZE];
+        numSegments++;
+    }
+
+    /**
+     * Stores an account in a free slot and turns it into a view over that
+     * slot. The slot only counts as open, and in the portfolio and the
+     * balance index, once the account has copied its data into it. The
+     * columns a reused slot may still hold for its previous account are
+     * reset first, including its hot cells.
+     *
+     * @param account The detached account to be stored.
+     * @return The slot of the account.
+     */
+    public int allocate(Account account) {
+        if (numFree == 0 && numSlots >= numSegments * Constants.SEGMENT_SIZE) {
+            grow();
+        }
+        int slot = numFree > 0 ? freeSlots[--numFree] : numSlots++;
+        types[segment(slot)][offset(slot)] = (byte) account.getType().ordinal();
+        setLoyal(slot, false);
+        withdrawals[segment(slot)][offset(slot)] = 0;
+        campuses[segment(slot)][offset(slot)] = Constants.NOT_FOUND;
+        hotCells[segment(slot)][offset(slot)] = null;
+        contention[segment(slot)][offset(slot)] = 0;
+        account.attach(this, slot);
+        accounts[segment(slot)][offset(slot)] = account;
+        AccountPolicy policy = AccountPolicy.current();
+        int type = type(slot);
+        long balance = balances[segment(slot)][offset(slot)];
+        portfolio.add(type, campus(slot), 1, balance, policy.projectedInterest(type, balance, isLoyal(slot)),
+                policy.monthlyFee(type, balance, withdrawals(slot)));
+        reindex(slot);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Closes a slot. The account stored in it gets its data back and is
+     * detached from the store.
+     *
+     * @param slot The slot to be closed.
+     */
+    public void release(int slot) {
+        Account account = accounts[segment(slot)][offset(slot)];
+        account.detach();
+        accounts[segment(slot)][offset(slot)] = null;
+        hotCells[segment(slot)][offset(slot)] = null;
+        contention[segment(slot)][offset(slot)] = 0;
+        size--;
+        if (!recycleSlots) {
+            return;
+        }
+        if (numFree == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[numFree++] = slot;
+    }
+
+    /**
+     * Checks if enough slots are closed for a compaction to pay off.
+     *
+     * @return true if the store should be compacted, false otherwise.
+     */
+    public boolean shouldCompact() {
+        return numSlots >= Constants.MIN_SLOTS_TO_COMPACT && numFree > numSlots * Constants.COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Moves the open slots to the front, in slot order, so that the closed
+     * slots are reclaimed at the end. The slots left behind are cleared,
+     * so that none still shares the hot cells of a moved account. Segments
+     * left empty are released.
+     */
+    public void compact() {
+        int target = 0;
+        for (int i = 0; i < numSlots; i++) {
+            Account account = accounts[segment(i)][offset(i)];
+            if (account != null) {
+                if (target != i) {
+                    move(i, target);
+                    account.slot = target;
+                }
+                target++;
+            }
+        }
+        for (int i = target; i < numSlots; i++) {
+            accounts[segment(i)][offset(i)] = null;
+            entries[segment(i)][offset(i)] = null;
+            hotCells[segment(i)][offset(i)] = null;
+            contention[segment(i)][offset(i)] = 0;
+        }
+        numSlots = target;
+        numFree = 0;
+        int used = (numSlots + Constants.SEGMENT_SIZE - 1) >>> Constants.SEGMENT_SHIFT;
+        while (numSegments > Math.max(used, 1)) {
+            numSegments--;
+            accounts[numSegments] = null;
+            balances[numSegments] = null;
+            types[numSegments] = null;
+            loyalty[numSegments] = null;
+            withdrawals[numSegments] = null;
+            campuses[numSegments] = null;
+            hotCells[numSegments] = null;
+            contention[numSegments] = null;
+            entries[numSegments] = null;
+            indexing[numSegments] = null;
+        }
+    }
+
+    /**
+     * Copies every column of one slot into another.
+     *
+     * @param from The slot to copy from.
+     * @param to   The slot to copy to.
+     */
+    private void move(int from, int to) {
+        accounts[segment(to)][offset(to)] = accounts[segment(from)][offset(from)];
+        balances[segment(to)][offset(to)] = balances[segment(from)][offset(from)];
+        types[segment(to)][offset(to)] = types[segment(from)][offset(from)];
+        setLoyal(to, isLoyal(from));
+        withdrawals[segment(to)][offset(to)] = withdrawals[segment(from)][offset(from)];
+        campuses[segment(to)][offset(to)] = campuses[segment(from)][offset(from)];
+        hotCells[segment(to)][offset(to)] = hotCells[segment(from)][offset(from)];
+        contention[segment(to)][offset(to)] = contention[segment(from)][offset(from)];
+        entries[segment(to)][offset(to)] = entries[segment(from)][offset(from)];
+    }
+
+    /**
+     * Gets the striped lock guarding the columns of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The lock of the slot.
+     */
+    public ReentrantLock lock(int slot) {
+        return locks[slot & (Constants.LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Gets the account view of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The account, or null if the slot is closed.
+     */
+    public Account account(int slot) {
+        return accounts[segment(slot)][offset(slot)];
+    }
+
+    /**
+     * Gets the balance of a slot, including the deposits still held in the
+     * cells of a hot slot.
+     *
+     * @param slot The slot of the account.
+     * @return The balance, in cents.
+     */
+    public long balance(int slot) {
+        long balance = (long) LONGS.getVolatile(balances[segment(slot)], offset(slot));
+        long[] cells = (long[]) CELLS.getVolatile(hotCells[segment(slot)], offset(slot));
+        if (cells != null && balance != Constants.CLOSED_BALANCE) {
+            for (int i = 0; i < cells.length; i += Constants.HOT_CELL_STRIDE) {
+                long cell = (long) LONGS.getVolatile(cells, i);
+                if (cell != Constants.CLOSED_BALANCE) {
+                    balance += cell;
+                }
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Sets the balance of a slot.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The new balance, in cents.
+     */
+    public void setBalance(int slot, long amount) {
+        if (isHot(slot)) {
+            ReentrantLock lock = lock(slot);
+            lock.lock();
+            try {
+                fold(slot);
+                replaceBalance(slot, amount);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        replaceBalance(slot, amount);
+    }
+
+    /**
+     * Replaces the balance of a slot, adding the change to the portfolio if
+     * the slot is open.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The new balance, in cents.
+     */
+    private void replaceBalance(int slot, long amount) {
+        if (accounts[segment(slot)][offset(slot)] == null) {
+            LONGS.setVolatile(balances[segment(slot)], offset(slot), amount);
+            return;
+        }
+        long before = (long) LONGS.getAndSet(balances[segment(slot)], offset(slot), amount);
+        track(slot, amount - before, before, amount);
+    }
+
+    /**
+     * Adds a change of the balance of an open slot to the portfolio. The
+     * projections follow the balance held in the column, so a deposit held
+     * in the cells of a hot slot moves the balances but not the projections
+     * until it is folded.
+     *
+     * @param slot   The slot of the account.
+     * @param delta  The change in the balance, cells included, in cents.
+     * @param before The balance of the column before the change, in cents.
+     * @param after  The balance of the column after the change, in cents.
+     */
+    private void track(int slot, long delta, long before, long after) {
+        int type = type(slot);
+        if (before == after) {
+            portfolio.add(type, campus(slot), 0, delta, 0, 0);
+            return;
+        }
+        AccountPolicy policy = AccountPolicy.current();
+        boolean status = isLoyal(slot);
+        portfolio.add(type, campus(slot), 0, delta,
+                policy.projectedInterest(type, after, status) - policy.projectedInterest(type, before, status),
+                policy.balanceFee(type, after) - policy.balanceFee(type, before));
+        reindex(slot);
+    }
+
+    /**
+     * Moves the entry of a slot in the balance index to its balance,
+     * including the deposits held in the cells of a hot slot, or removes it
+     * once the slot is closed. If another thread
+     * is already moving the entry, it is asked to check the balance again
+     * and this thread returns at once, so that no thread ever waits.
+     *
+     * @param slot The slot of the account.
+     */
+    private void reindex(int slot) {
+        int[] states = indexing[segment(slot)];
+        int offset = offset(slot);
+        int state = (int) INTS.getVolatile(states, offset);
+        while (state != Constants.INDEX_DIRTY) {
+            int next = state == Constants.INDEX_IDLE ? Constants.INDEX_RUNNING : Constants.INDEX_DIRTY;
+            int witness = (int) INTS.compareAndExchange(states, offset, state, next);
+            if (witness == state) {
+                break;
+            }
+            state = witness;
+        }
+        if (state != Constants.INDEX_IDLE) {
+            return;
+        }
+        do {
+            INTS.setVolatile(states, offset, Constants.INDEX_RUNNING);
+            BalanceIndex.Entry entry = entries[segment(slot)][offset];
+            long balance = balance(slot);
+            if (entry != null && entry.balance == balance) {
+                continue;
+            }
+            Account account = entry != null ? entry.account : accounts[segment(slot)][offset];
+            if (entry != null) {
+                index.remove(entry);
+            }
+            entries[segment(slot)][offset] = balance == Constants.CLOSED_BALANCE || account == null
+                    ? null : index.add(type(slot), balance, account);
+        } while (!INTS.compareAndSet(states, offset, Constants.INDEX_RUNNING, Constants.INDEX_IDLE));
+    }
+
+    /**
+     * Takes the balance out of a slot that is being closed and removes the
+     * slot from the portfolio and the balance index. Any deposit or withdrawal that reaches the
+     * slot afterwards fails as not found, and a withdrawal counted afterwards
+     * no longer changes the fees.
+     *
+     * @param slot The slot of the account.
+     * @return The last balance of the slot, in cents.
+     */
+    public long takeBalance(int slot) {
+        long held = 0;
+        long[] cells = (long[]) CELLS.getVolatile(hotCells[segment(slot)], offset(slot));
+        if (cells != null) {
+            for (int i = 0; i < cells.length; i += Constants.HOT_CELL_STRIDE) {
+                held += (long) LONGS.getAndSet(cells, i, Constants.CLOSED_BALANCE);
+            }
+        }
+        long balance = (long) LONGS.getAndSet(balances[segment(slot)], offset(slot), Constants.CLOSED_BALANCE);
+        int withdrawn = (int) INTS.getAndSet(withdrawals[segment(slot)], offset(slot), Constants.CLOSED_WITHDRAWALS);
+        AccountPolicy policy = AccountPolicy.current();
+        int type = type(slot);
+        portfolio.add(type, campus(slot), -1, -(held + balance),
+                -policy.projectedInterest(type, balance, isLoyal(slot)), -policy.monthlyFee(type, balance, withdrawn));
+        reindex(slot);
+        return held + balance;
+    }
+
+    /**
+     * Checks if a slot is a hot account.
+     *
+     * @param slot The slot of the account.
+     * @return true if deposits to the slot go to striped cells.
+     */
+    public boolean isHot(int slot) {
+        return CELLS.getVolatile(hotCells[segment(slot)], offset(slot)) != null;
+    }
+
+    /**
+     * Promotes a slot to a hot account, whose deposits are spread over
+     * striped cells instead of contending on the balance.
+     *
+     * @param slot The slot of the account.
+     */
+    public void promote(int slot) {
+        long[] cells = new long[Constants.HOT_CELLS * Constants.HOT_CELL_STRIDE];
+        CELLS.compareAndSet(hotCells[segment(slot)], offset(slot), null, cells);
+    }
+
+    /**
+     * Moves the deposits held in the cells of a hot slot into its balance.
+     * The caller must hold the lock of the slot, so that a close cannot take
+     * the balance while a folded amount is in flight.
+     *
+     * @param slot The slot of the account.
+     */
+    public void fold(int slot) {
+        long[] cells = (long[]) CELLS.getVolatile(hotCells[segment(slot)], offset(slot));
+        if (cells == null) {
+            return;
+        }
+        long[] segment = balances[segment(slot)];
+        int offset = offset(slot);
+        for (int i = 0; i < cells.length; i += Constants.HOT_CELL_STRIDE) {
+            long cell = (long) LONGS.getVolatile(cells, i);
+            while (cell != 0 && cell != Constants.CLOSED_BALANCE) {
+                long witness = (long) LONGS.compareAndExchange(cells, i, cell, 0L);
+                if (witness == cell) {
+                    long before = (long) LONGS.getAndAdd(segment, offset, cell);
+                    track(slot, 0, before, before + cell);
+                    break;
+                }
+                cell = witness;
+            }
+        }
+    }
+
+    /**
+     * Closes the month of a range of slots: folds the hot slots, computes the
+     * interest and fee of each segment in one pass over its columns with
+     * MonthEndKernel and the AccountPolicy in effect, then applies them and
+     * resets the Money Market withdrawal counts. The portfolio moves on to
+     * the projections of the new balances, and the balance index to the new
+     * balances. Deposits and withdrawals must not
+     * run meanwhile.
+     *
+     * @param from   The first slot of the range.
+     * @param to     The end of the range, exclusive.
+     * @param totals Receives the close of each open slot.
+     * @throws ArithmeticException if an interest overflows a long.
+     */
+    public void closeMonth(int from, int to, MonthEndTotals totals) {
+        long[] interest = new long[Constants.SEGMENT_SIZE];
+        long[] fees = new long[Constants.SEGMENT_SIZE];
+        AccountPolicy policy = AccountPolicy.current();
+        AccountType[] accountTypes = AccountType.values();
+        int moneyMarket = AccountType.MONEY_MARKET.ordinal();
+        while (from < to) {
+            int segment = segment(from);
+            int start = offset(from);
+            int end = Math.min(to - (segment << Constants.SEGMENT_SHIFT), Constants.SEGMENT_SIZE);
+            Account[] views = accounts[segment];
+            for (int i = start; i < end; i++) {
+                if (views[i] != null && hotCells[segment][i] != null) {
+                    int slot = (segment << Constants.SEGMENT_SHIFT) + i;
+                    ReentrantLock lock = lock(slot);
+                    lock.lock();
+                    try {
+                        fold(slot);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            long[] segmentBalances = balances[segment];
+            byte[] segmentTypes = types[segment];
+            int[] segmentWithdrawals = withdrawals[segment];
+            MonthEndKernel.compute(policy, views, segmentBalances, segmentTypes, loyalty[segment], segmentWithdrawals,
+                    start, end, interest, fees);
+            for (int i = start; i < end; i++) {
+                if (views[i] == null) {
+                    continue;
+                }
+                int slot = (segment << Constants.SEGMENT_SHIFT) + i;
+                int type = segmentTypes[i];
+                long before = segmentBalances[i];
+                long balance = before + interest[i] - fees[i];
+                LONGS.setVolatile(segmentBalances, i, balance);
+                int withdrawn = segmentWithdrawals[i];
+                if (type == moneyMarket) {
+                    INTS.setVolatile(segmentWithdrawals, i, 0);
+                    withdrawn = 0;
+                }
+                totals.add(accountTypes[type], interest[i], fees[i], balance);
+                portfolio.add(type, campus(slot), 0, balance - before,
+                        policy.projectedInterest(type, balance, isLoyal(slot)) - interest[i],
+                        policy.monthlyFee(type, balance, withdrawn) - fees[i]);
+                reindex(slot);
+            }
+            from = (segment + 1) << Constants.SEGMENT_SHIFT;
+        }
+    }
+
+    /**
+     * Adds an amount to the balance of a slot without locking.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The amount to be deposited, in cents.
+     * @return true if the amount was added, false if the slot is closed.
+     */
+    public boolean deposit(int slot, long amount) {
+        long[] cells = (long[]) CELLS.getVolatile(hotCells[segment(slot)], offset(slot));
+        if (cells != null) {
+            if (!add(cells, (int) Thread.currentThread().threadId(), amount)) {
+                return false;
+            }
+            track(slot, amount, 0, 0);
+            reindex(slot);
+            return true;
+        }
+        long[] segment = balances[segment(slot)];
+        int offset = offset(slot);
+        long current = (long) LONGS.getVolatile(segment, offset);
+        int retries = 0;
+        while (current != Constants.CLOSED_BALANCE) {
+            long witness = (long) LONGS.compareAndExchange(segment, offset, current, current + amount);
+            if (witness == current) {
+                track(slot, amount, current, current + amount);
+                if (retries > 0) {
+                    int failures = (int) INTS.getAndAdd(contention[segment(slot)], offset, retries);
+                    if (failures < Constants.HOT_PROMOTION_THRESHOLD
+                            && failures + retries >= Constants.HOT_PROMOTION_THRESHOLD) {
+                        promote(slot);
+                    }
+                }
+                return true;
+            }
+            current = witness;
+            retries++;
+        }
+        return false;
+    }
+
+    /**
+     * Adds an amount to one of the cells of a hot slot, starting at the
+     * cell picked by the probe and moving on whenever a cell is contended.
+     *
+     * @param cells  The cells of the hot slot.
+     * @param probe  A per-thread value spreading threads over the cells.
+     * @param amount The amount to be deposited, in cents.
+     * @return true if the amount was added, false if the slot is closed.
+     */
+    private static boolean add(long[] cells, int probe, long amount) {
+        int cell = (probe * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(Constants.HOT_CELLS));
+        while (true) {
+            int i = cell * Constants.HOT_CELL_STRIDE;
+            long current = (long) LONGS.getVolatile(cells, i);
+            if (current == Constants.CLOSED_BALANCE) {
+                return false;
+            }
+            if (LONGS.compareAndSet(cells, i, current, current + amount)) {
+                return true;
+            }
+            cell = (cell + 1) & (Constants.HOT_CELLS - 1);
+        }
+    }
+
+    /**
+     * Subtracts an amount from the balance of a slot without locking. The
+     * funds check and the update are one compare-and-set, so concurrent
+     * withdrawals can never overdraw the account. A Money Market withdrawal
+     * is counted once its compare-and-set succeeds.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the slot
+     *         is closed.
+     */
+    public int withdraw(int slot, long amount) {
+        if (isHot(slot)) {
+            ReentrantLock lock = lock(slot);
+            lock.lock();
+            try {
+                fold(slot);
+                return debit(slot, amount);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return debit(slot, amount);
+    }
+
+    /**
+     * Subtracts an amount from the balance of a slot with compare-and-set,
+     * counting a Money Market withdrawal once it succeeds.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the slot
+     *         is closed.
+     */
+    private int debit(int slot, long amount) {
+        int result = take(slot, amount);
+        if (result == Constants.TRANSACTION_DONE && type(slot) == AccountType.MONEY_MARKET.ordinal()) {
+            incrementWithdrawals(slot);
+        }
+        return result;
+    }
+
+    /**
+     * Subtracts an amount from the balance of a slot with compare-and-set,
+     * without counting it as a withdrawal.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the slot
+     *         is closed.
+     */
+    private int take(int slot, long amount) {
+        long[] segment = balances[segment(slot)];
+        int offset = offset(slot);
+        long current = (long) LONGS.getVolatile(segment, offset);
+        while (true) {
+            if (current == Constants.CLOSED_BALANCE) {
+                return Constants.NOT_FOUND;
+            }
+            if (current < amount) {
+                return Constants.INSUFFICIENT_FUNDS;
+            }
+            long witness = (long) LONGS.compareAndExchange(segment, offset, current, current - amount);
+            if (witness == current) {
+                track(slot, -amount, current, current - amount);
+                return Constants.TRANSACTION_DONE;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * Moves an amount from one slot to another. The locks of both slots are
+     * taken in stripe order, so that two opposite transfers cannot deadlock,
+     * and neither slot can be closed between the two legs. Should the
+     * deposit still fail, the withdrawal is reversed, so the money is never
+     * lost. A Money Market source counts the transfer as a withdrawal once
+     * both legs succeeded.
+     * The two legs are not atomic to lock-free readers: a reader of the
+     * balances may see the money withdrawn but not yet deposited, and the
+     * portfolio totals may move between the two legs.
+     *
+     * @param from   The slot to withdraw from.
+     * @param to     The slot to deposit into.
+     * @param amount The amount to be moved, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if either
+     *         slot is closed.
+     */
+    public int transfer(int from, int to, long amount) {
+        ReentrantLock first = lock(Math.min(from & (Constants.LOCK_STRIPES - 1), to & (Constants.LOCK_STRIPES - 1)));
+        ReentrantLock second = lock(Math.max(from & (Constants.LOCK_STRIPES - 1), to & (Constants.LOCK_STRIPES - 1)));
+        first.lock();
+        try {
+            if (second != first) {
+                second.lock();
+            }
+            try {
+                if (balance(to) == Constants.CLOSED_BALANCE) {
+                    return Constants.NOT_FOUND;
+                }
+                fold(from);
+                int result = take(from, amount);
+                if (result != Constants.TRANSACTION_DONE) {
+                    return result;
+                }
+                if (!deposit(to, amount)) {
+                    deposit(from, amount);
+                    return Constants.NOT_FOUND;
+                }
+                if (type(from) == AccountType.MONEY_MARKET.ordinal()) {
+                    incrementWithdrawals(from);
+                }
+                return Constants.TRANSACTION_DONE;
+            } finally {
+                if (second != first) {
+                    second.unlock();
+                }
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    /**
+     * Gets the account type of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The AccountType ordinal.
+     */
+    public int type(int slot) {
+        return types[segment(slot)][offset(slot)];
+    }
+
+    /**
+     * Gets the loyal customer status of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The loyal customer status.
+     */
+    public boolean isLoyal(int slot) {
+        return (loyalty[segment(slot)][offset(slot) >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Sets the loyal customer status of a slot.
+     *
+     * @param slot  The slot of the account.
+     * @param loyal The loyal customer status.
+     */
+    public void setLoyal(int slot, boolean loyal) {
+        long[] bits = loyalty[segment(slot)];
+        if (loyal) {
+            bits[offset(slot) >>> 6] |= 1L << slot;
+        } else {
+            bits[offset(slot) >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Gets the withdrawal count of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The withdrawal count.
+     */
+    public int withdrawals(int slot) {
+        return (int) INTS.getVolatile(withdrawals[segment(slot)], offset(slot));
+    }
+
+    /**
+     * Adds one to the withdrawal count of a slot without locking.
+     *
+     * @param slot The slot of the account.
+     */
+    public void incrementWithdrawals(int slot) {
+        int before = (int) INTS.getAndAdd(withdrawals[segment(slot)], offset(slot), 1);
+        AccountPolicy policy = AccountPolicy.current();
+        int type = type(slot);
+        long fee = policy.withdrawalFee(type, before + 1) - policy.withdrawalFee(type, before);
+        portfolio.add(type, campus(slot), 0, 0, 0, fee);
+    }
+
+    /**
+     * Sets the withdrawal count of a slot.
+     *
+     * @param slot  The slot of the account.
+     * @param count The withdrawal count.
+     */
+    public void setWithdrawals(int slot, int count) {
+        if (accounts[segment(slot)][offset(slot)] == null) {
+            INTS.setVolatile(withdrawals[segment(slot)], offset(slot), count);
+            return;
+        }
+        int before = (int) INTS.getAndSet(withdrawals[segment(slot)], offset(slot), count);
+        AccountPolicy policy = AccountPolicy.current();
+        int type = type(slot);
+        portfolio.add(type, campus(slot), 0, 0, 0,
+                policy.withdrawalFee(type, count) - policy.withdrawalFee(type, before));
+    }
+
+    /**
+     * Gets the campus code of a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The Campus ordinal.
+     */
+    public int campus(int slot) {
+        return campuses[segment(slot)][offset(slot)];
+    }
+
+    /**
+     * Sets the campus code of a slot.
+     *
+     * @param slot The slot of the account.
+     * @param code The Campus ordinal.
+     */
+    public void setCampus(int slot, int code) {
+        campuses[segment(slot)][offset(slot)] = (byte) code;
+    }
+
+    /**
+     * Gets the segment holding a slot.
+     *
+     * @param slot The slot of the account.
+     * @return The segment number.
+     */
+    private static int segment(int slot) {
+        return slot >>> Constants.SEGMENT_SHIFT;
+    }
+
+    /**
+     * Gets the offset of a slot within its segment.
+     *
+     * @param slot The slot of the account.
+     * @return The offset in the segment.
+     */
+    private static int offset(int slot) {
+        return slot & (Constants.SEGMENT_SIZE - 1);
+    }
+}
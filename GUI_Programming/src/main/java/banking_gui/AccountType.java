@@ -0,0 +1,54 @@
+package banking_gui;
+
+/**
+ * Enumerates the types of accounts held in the AccountDatabase. The
+ * declaration order matches the order in which the account types are
+ * listed in the reports (by class name).
+ *
+ * @author Altay Ozkan
+ */
+public enum AccountType {
+    CHECKING,
+    COLLEGE_CHECKING,
+    MONEY_MARKET,
+    SAVINGS;
+
+    /**
+     * Gets the other account type in the same family. Checking and College
+     * Checking form one family, Savings and Money Market form the other.
+     *
+     * @return The sibling account type.
+     */
+    public AccountType sibling() {
+        return switch (this) {
+            case CHECKING -> COLLEGE_CHECKING;
+            case COLLEGE_CHECKING -> CHECKING;
+            case MONEY_MARKET -> SAVINGS;
+            case SAVINGS -> MONEY_MARKET;
+        };
+    }
+
+    /**
+     * Gets the short code of this account type, as used in the data files
+     * and the messages.
+     *
+     * @return C, CC, MM or S.
+     */
+    public String code() {
+        return switch (this) {
+            case CHECKING -> "C";
+            case COLLEGE_CHECKING -> "CC";
+            case MONEY_MARKET -> "MM";
+            case SAVINGS -> "S";
+        };
+    }
+
+    /**
+     * Checks if this account type belongs to the checking family.
+     *
+     * @return true for Checking and College Checking, false otherwise.
+     */
+    public boolean isChecking() {
+        return this == CHECKING || this == COLLEGE_CHECKING;
+    }
+}
@@ -0,0 +1,108 @@
+package banking_gui;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index of the accounts of an AccountStore ordered by account type, then by
+ * balance, then by the holder's profile, so that the accounts of a type are
+ * in the order of Account.compareTo. It answers the balance range queries
+ * of the fee and loyalty rules in logarithmic time plus the number of
+ * accounts found, instead of scanning every account.
+ * Entries are immutable: a change of balance replaces the entry of the
+ * account, and the store makes sure only one thread at a time replaces the
+ * entry of a slot. A hot account is indexed by its full balance, with the
+ * deposits still held in its cells, so that a range query never lists it
+ * by a balance it no longer has.
+ *
+ * @author Altay Ozkan
+ */
+public class BalanceIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry entry) -> entry.type)
+            .thenComparingLong(entry -> entry.balance)
+            .thenComparing(entry -> entry.account, Comparator.nullsFirst(Comparator.comparing(Account::getHolder)));
+
+    private final ConcurrentSkipListSet<Entry> entries; // entries of the open accounts
+
+    /**
+     * The position of an account in the index: its type and its balance when
+     * it was indexed. An entry with no account sorts before every account of
+     * the same type and balance, and bounds the range queries.
+     */
+    static final class Entry {
+        final int type; // AccountType ordinal
+        final long balance; // indexed balance, in cents
+        final Account account; // indexed account, null for a bound
+
+        /**
+         * Creates an entry.
+         *
+         * @param type    The AccountType ordinal.
+         * @param balance The balance, in cents.
+         * @param account The account, or null for a bound.
+         */
+        Entry(int type, long balance, Account account) {
+            this.type = type;
+            this.balance = balance;
+            this.account = account;
+        }
+    }
+
+    /**
+     * Creates an empty index.
+     */
+    public BalanceIndex() {
+        this.entries = new ConcurrentSkipListSet<>(ORDER);
+    }
+
+    /**
+     * Adds an account to the index.
+     *
+     * @param type    The AccountType ordinal.
+     * @param balance The balance of the account, in cents.
+     * @param account The account.
+     * @return The entry of the account.
+     */
+    Entry add(int type, long balance, Account account) {
+        Entry entry = new Entry(type, balance, account);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Removes the entry of an account from the index.
+     *
+     * @param entry The entry of the account.
+     */
+    void remove(Entry entry) {
+        entries.remove(entry);
+    }
+
+    /**
+     * Finds the accounts of a type whose balance is in a range, in the order
+     * of Account.compareTo as of their indexing. Each account found is checked
+     * against its current balance, so an account whose balance moved out of
+     * the range since it was indexed is left out.
+     *
+     * @param type The account type.
+     * @param from The lowest balance, inclusive, in cents.
+     * @param to   The highest balance, exclusive, in cents.
+     * @return The accounts found.
+     */
+    public List<Account> range(AccountType type, long from, long to) {
+        List<Account> found = new ArrayList<>();
+        if (from >= to) {
+            return found;
+        }
+        int code = type.ordinal();
+        for (Entry entry : entries.subSet(new Entry(code, from, null), new Entry(code, to, null))) {
+            long balance = entry.account.getBalance();
+            if (balance >= from && balance < to) {
+                found.add(entry.account);
+            }
+        }
+        return found;
+    }
+}
@@ -13,34 +13,20 @@ public class Checking extends Account {
      * Constructs a new Checking account with a given profile and initial balance.
      *
      * @param holder  the profile of the account holder
-     * @param balance the initial balance of the account
+     * @param balance the initial balance of the account, in cents
      */
-    public Checking(Profile holder, double balance) {
+    public Checking(Profile holder, long balance) {
         super(holder, balance);
     }
 
     /**
-     * Calculates the monthly interest for the checking account.
+     * Gets the type of the account.
      *
-     * @return the monthly interest amount
+     * @return the account type
      */
     @Override
-    public double monthlyInterest() {
-        return balance * (Constants.CHECKING_ANNUAL_INTEREST_RATE / Constants.MONTHS_COUNT);
-    }
-
-    /**
-     * Calculates the monthly fee for the checking account.
-     * Fee is waived if the balance is greater than or equal to the threshold.
-     *
-     * @return the monthly fee amount
-     */
-    @Override
-    public double monthlyFee() {
-        if (balance >= Constants.CHECKING_MIN_BALANCE_FOR_NO_FEE) {
-            return 0;
-        }
-        return Constants.CHECKING_MONTHLY_FEE;
+    public AccountType getType() {
+        return AccountType.CHECKING;
     }
 
     /**
@@ -16,11 +16,11 @@ public class CollegeChecking extends Checking {
      * Constructor for the CollegeChecking account.
      *
      * @param holder  The profile of the account holder.
-     * @param balance The initial balance of the account.
+     * @param balance The initial balance of the account, in cents.
      * @param code    An integer code representing the campus (0 for NEW_BRUNSWICK,
      *                1 for NEWARK, 2 for CAMDEN).
      */
-    public CollegeChecking(Profile holder, double balance, int code) {
+    public CollegeChecking(Profile holder, long balance, int code) {
         super(holder, balance);
         switch (code) {
             case 0 -> this.campus = Campus.NEW_BRUNSWICK;
@@ -30,34 +30,48 @@ public class CollegeChecking extends Checking {
     }
 
     /**
-     * Calculates the monthly interest for the college checking account.
+     * Gets the campus associated with this college checking account.
      *
-     * @return The monthly interest amount.
+     * @return The campus enum value.
      */
-    @Override
-    public double monthlyInterest() {
-        return balance * (Constants.CHECKING_ANNUAL_INTEREST_RATE / Constants.MONTHS_COUNT);
+    public Campus getCampus() {
+        if (store == null) {
+            return campus;
+        }
+        int code = store.campus(slot);
+        return code == Constants.NOT_FOUND ? null : Campus.values()[code];
     }
 
     /**
-     * Retrieves the monthly fee for the college checking account. For college
-     * checking accounts,
-     * there is no monthly fee.
+     * Turns the account into a view over a slot of the store, copying the
+     * campus code into its column.
      *
-     * @return The monthly fee amount, which is 0 for college checking accounts.
+     * @param store The store holding the account.
+     * @param slot  The slot of the account in the store.
      */
     @Override
-    public double monthlyFee() {
-        return 0;
+    void attach(AccountStore store, int slot) {
+        super.attach(store, slot);
+        store.setCampus(slot, campus == null ? Constants.NOT_FOUND : campus.ordinal());
     }
 
     /**
-     * Gets the campus associated with this college checking account.
+     * Copies the campus code back from the slot and detaches the account.
+     */
+    @Override
+    void detach() {
+        campus = getCampus();
+        super.detach();
+    }
+
+    /**
+     * Gets the type of the account.
      *
-     * @return The campus enum value.
+     * @return the account type
      */
-    public Campus getCampus() {
-        return campus;
+    @Override
+    public AccountType getType() {
+        return AccountType.COLLEGE_CHECKING;
     }
 
     /**
@@ -0,0 +1,15 @@
+package banking_gui;
+
+/**
+ * Enumerates the operations that change the state of the AccountDatabase.
+ *
+ * @author Altay Ozkan
+ */
+public enum CommandType {
+    OPEN,
+    CLOSE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    MONTH_END
+}
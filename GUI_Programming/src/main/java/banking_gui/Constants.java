@@ -1,5 +1,7 @@
 package banking_gui;
 
+import java.math.RoundingMode;
+
 /**
  * Provides constant values for managing dates and time.
  * This class contains constants used throughout the project to avoid magic
@@ -13,24 +15,73 @@ public class Constants {
     public static final int CENTENNIAL = 100;
     public static final int QUATERCENTENNIAL = 400;
     public static final int MONTHS_COUNT = 12;
+    public static final int PACKED_YEAR = 10_000; // weight of the year in a yyyymmdd date
+    public static final int MAX_PACKED_YEAR = 214_747; // last year whose yyyymmdd fits in an int
     public static final int DAYS_31 = 31;
     public static final int DAYS_30 = 30;
     public static final int DAYS_29 = 29;
     public static final int DAYS_28 = 28;
     public static final int INITIAL_CAPACITY = 4;
     public static final int NOT_FOUND = -1;
-    public static final int GROWTH_AMOUNT = 4;
-    public static final double CHECKING_MONTHLY_FEE = 12.0;
-    public static final double CHECKING_ANNUAL_INTEREST_RATE = 0.01;
-    public static final double CHECKING_MIN_BALANCE_FOR_NO_FEE = 1000;
-    public static final double SAVINGS_INTEREST = 0.04;
-    public static final double LOYAL_BONUS = 0.0025;
-    public static final double SAVINGS_FEE = 25.0;
-    public static final double MM_PLUS_FEE = 35.0;
-    public static final double NO_FEE_BALANCE = 500.0;
-    public static final double MM_INTEREST = 0.045; // 4.75%
-    public static final int MIN_BALANCE_LOYAL = 2000;
-    public static final double FEE_WITHDRAW_OVER_LIMIT = 10;
+    public static final int SEGMENT_SHIFT = 10;
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT; // accounts per storage segment
+    public static final int ESTIMATED_RECORD_LENGTH = 24; // bytes per line of an account file
+    public static final long LOAD_MIN_CHUNK_BYTES = 1 << 20; // smallest chunk parsed by one task
+    public static final int LOAD_CHUNKS_PER_THREAD = 4;
+    public static final int LOAD_PROBE_BYTES = 256; // bytes read at once looking for a line end
+    public static final int CSV_MAX_FIELDS = 8; // fields of a line whose bounds are kept
+    public static final int CENT_DIGITS = 2;
+    public static final long CENTS_PER_DOLLAR = 100;
+    public static final int MONEY_TEXT_CAPACITY = 32;
+    public static final int RATE_SCALE = 1_000_000; // interest rates are in millionths
+    public static final RoundingMode INTEREST_ROUNDING = RoundingMode.HALF_EVEN;
+    public static final long CHECKING_MONTHLY_FEE = 1200; // $12.00
+    public static final long CHECKING_ANNUAL_INTEREST_RATE = 10_000; // 1%
+    public static final long CHECKING_MIN_BALANCE_FOR_NO_FEE = 100_000; // $1,000.00
+    public static final long SAVINGS_INTEREST = 40_000; // 4%
+    public static final long LOYAL_BONUS = 2_500; // 0.25%
+    public static final long SAVINGS_FEE = 2500; // $25.00
+    public static final long NO_FEE_BALANCE = 50_000; // $500.00
+    public static final long MM_INTEREST = 45_000; // 4.5%
+    public static final long MIN_BALANCE_LOYAL = 200_000; // $2,000.00
+    public static final long FEE_WITHDRAW_OVER_LIMIT = 1000; // $10.00
     public static final int WITHDRAW_LIMIT = 3;
+    public static final String POLICY_PROPERTY = "banking.policy"; // system property naming the AccountPolicy file
+    public static final String STORE_PROPERTY = "banking.store"; // system property naming a MappedAccountDatabase directory
     public static final int ACCOUNT_FOUND = 0;
+    public static final int INDEX_INITIAL_CAPACITY = 16;
+    public static final int INDEX_LOAD_FACTOR = 2; // table kept at most half full
+    public static final double COMPACTION_THRESHOLD = 0.5; // dead fraction of the used slots
+    public static final int MIN_SLOTS_TO_COMPACT = 64;
+    public static final int LOCK_STRIPES = 64; // power of two
+    public static final int MONTH_END_GRAIN = 4096; // slots closed by one task without splitting
+    public static final int OPTIMISTIC_ATTEMPTS = 4;
+    public static final long CLOSED_BALANCE = Long.MIN_VALUE; // balance of a closed slot
+    public static final int CLOSED_WITHDRAWALS = Integer.MIN_VALUE; // withdrawal count of a closed slot
+    public static final int TRANSACTION_DONE = 0;
+    public static final int INSUFFICIENT_FUNDS = -2;
+    public static final int DUPLICATE_ACCOUNT = -3;
+    public static final int TRANSACTION_FAILED = -4;
+    public static final int BATCH_INITIAL_CAPACITY = 64;
+    public static final int PIPELINE_RING_SIZE = 1 << 14; // commands in flight, power of two
+    public static final int PIPELINE_SPINS = 100; // busy waits before yielding, then parking
+    public static final long PIPELINE_PARK_NANOS = 50_000;
+    public static final int MAX_NAME_BYTES = 0xFFFF; // longest encoded name in a binary record
+    public static final int JOURNAL_MAGIC = 0x424B4A4C; // "BKJL"
+    public static final short JOURNAL_VERSION = 1;
+    public static final int JOURNAL_BUFFER_SIZE = 1 << 16; // bytes buffered between two writes
+    public static final long JOURNAL_FLUSH_MILLIS = 10; // longest delay of a time-bounded force
+    public static final int ARCHIVE_MAGIC = 0x424B4152; // "BKAR", exports and snapshots
+    public static final short ARCHIVE_VERSION = 1;
+    public static final String ARCHIVE_EXTENSION = ".bka";
+    public static final int MAPPED_MAGIC = 0x424B4D50; // "BKMP", first int of each mapped file
+    public static final short MAPPED_VERSION = 1;
+    public static final int MAPPED_INITIAL_RECORDS = 1024;
+    public static final int MAPPED_INITIAL_NAME_BYTES = 1 << 16;
+    public static final int HOT_CELLS = 16; // deposit cells of a hot account, power of two
+    public static final int HOT_CELL_STRIDE = 8; // longs between two cells, one cache line
+    public static final int HOT_PROMOTION_THRESHOLD = 32; // failed deposit CAS before promotion
+    public static final int INDEX_IDLE = 0; // no thread is moving the balance index entry of a slot
+    public static final int INDEX_RUNNING = 1; // a thread is moving the entry of a slot
+    public static final int INDEX_DIRTY = 2; // the balance changed while the entry was being moved
 }
\ No newline at end of file
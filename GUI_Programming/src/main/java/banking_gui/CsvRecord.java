@@ -0,0 +1,238 @@
+package banking_gui;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A reusable view of one comma separated line, tokenized in place. The line
+ * stays in its source, either a byte buffer holding ASCII or any character
+ * sequence, and the record only keeps the bounds of its fields. Numbers,
+ * dates and amounts are parsed straight from the source; a String is only
+ * created when a field or the line is asked for as text.
+ * Fields are counted like String.split(","), without the trailing empty
+ * fields.
+ *
+ * @author Altay Ozkan
+ */
+public final class CsvRecord implements CharSequence {
+    private ByteBuffer bytes; // source of an ASCII line, null if the line is text
+    private CharSequence text; // source of any other line, null if the line is bytes
+    private int offset; // start of the line in its source
+    private int length; // characters in the line
+    private int fields; // number of fields, without the trailing empty ones
+    private final int[] starts = new int[Constants.CSV_MAX_FIELDS]; // start of each field in the line
+    private final int[] ends = new int[Constants.CSV_MAX_FIELDS]; // end of each field, exclusive
+    private byte[] scratch = new byte[Constants.LOAD_PROBE_BYTES]; // copy of an ASCII field being turned into text
+
+    /**
+     * Creates a record pointing to no line, to be reused for every line of a
+     * chunk.
+     */
+    CsvRecord() {
+    }
+
+    /**
+     * Points the record to a line held in a byte buffer, if it is ASCII.
+     *
+     * @param source The buffer holding the line.
+     * @param start  The start of the line.
+     * @param end    The end of the line, exclusive.
+     * @return true if the line is ASCII and the record now holds it, false
+     *         otherwise, leaving the record unchanged.
+     */
+    public boolean reset(ByteBuffer source, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (source.get(i) < 0) {
+                return false;
+            }
+        }
+        bytes = source;
+        text = null;
+        offset = start;
+        length = end - start;
+        tokenize();
+        return true;
+    }
+
+    /**
+     * Points the record to a line held in a character sequence.
+     *
+     * @param source The line.
+     */
+    public void reset(CharSequence source) {
+        bytes = null;
+        text = source;
+        offset = 0;
+        length = source.length();
+        tokenize();
+    }
+
+    /**
+     * Finds the bounds of the fields of the current line.
+     */
+    private void tokenize() {
+        fields = 0;
+        int count = 0;
+        int from = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || charAt(i) == ',') {
+                if (count < starts.length) {
+                    starts[count] = from;
+                    ends[count] = i;
+                }
+                count++;
+                if (i > from) {
+                    fields = count;
+                }
+                from = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of fields of the line, without the trailing empty
+     * ones.
+     *
+     * @return The number of fields.
+     */
+    public int fieldCount() {
+        return fields;
+    }
+
+    /**
+     * Gets the start of a field in the line.
+     *
+     * @param field The index of the field.
+     * @return The start of the field.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public int start(int field) {
+        return starts[checkField(field)];
+    }
+
+    /**
+     * Gets the end of a field in the line.
+     *
+     * @param field The index of the field.
+     * @return The end of the field, exclusive.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public int end(int field) {
+        return ends[checkField(field)];
+    }
+
+    /**
+     * Checks a field index against the fields of the line.
+     *
+     * @param field The index of the field.
+     * @return The index.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    private int checkField(int field) {
+        Objects.checkIndex(field, fields);
+        if (field >= starts.length) {
+            throw new IndexOutOfBoundsException("Field " + field + " is past the tokenized fields");
+        }
+        return field;
+    }
+
+    /**
+     * Checks if a field holds exactly the given text.
+     *
+     * @param field The index of the field.
+     * @param value The text to compare to.
+     * @return true if the field equals the text, false otherwise.
+     */
+    public boolean fieldEquals(int field, String value) {
+        int start = start(field);
+        int end = end(field);
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (charAt(i) != value.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a field as a decimal int.
+     *
+     * @param field The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException     if the field is not an int.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public int intField(int field) {
+        return Integer.parseInt(this, start(field), end(field), 10);
+    }
+
+    /**
+     * Parses a field as an amount of dollars.
+     *
+     * @param field The index of the field.
+     * @return The amount in cents.
+     * @throws NumberFormatException     if the field is not a valid amount.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public long centsField(int field) {
+        return Money.parse(this, start(field), end(field));
+    }
+
+    /**
+     * Parses a field as a date.
+     *
+     * @param field The index of the field.
+     * @return The date, as Date(String) would parse it.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public Date dateField(int field) {
+        return new Date(this, start(field), end(field));
+    }
+
+    /**
+     * Gets a field as text.
+     *
+     * @param field The index of the field.
+     * @return The text of the field.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public String field(int field) {
+        return subSequence(start(field), end(field));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return bytes != null ? (char) bytes.get(offset + index) : text.charAt(offset + index);
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        if (bytes == null) {
+            return text.subSequence(offset + start, offset + end).toString();
+        }
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        bytes.get(offset + start, scratch, 0, end - start);
+        return new String(scratch, 0, end - start, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the whole line as text.
+     *
+     * @return The line.
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+}
@@ -1,18 +1,26 @@
 package banking_gui;
 
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 
 /**
  * Represents a date, allowing for validation, comparison, and text
- * representation.
+ * representation. The date is packed into a single int as yyyymmdd, so that
+ * dates compare with one int comparison. Parts that do not fit the packing,
+ * which only come from parsing unusual input, are kept unpacked instead.
  * 
  * @author Altay Ozkan
  * @author Jeffery Sypytkowski
  */
 public class Date implements Comparable<Date> {
-    private int year;
-    private int month;
-    private int day;
+    private static final int NOT_PACKED = Integer.MIN_VALUE; // packed value of a date kept unpacked
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE; // result of parsing a part that is not an int
+    private static volatile Date today; // today's date, shared until midnight
+    private static volatile long todayUntil; // time at which today's date expires, in milliseconds
+
+    private final int packed; // the date as yyyymmdd, or NOT_PACKED
+    private final int[] parts; // year, month and day of a date that is not packed, null otherwise
 
     /**
      * Initializes a new instance of the Date class with a specific date.
@@ -20,38 +28,135 @@ public class Date implements Comparable<Date> {
      * @param date a string representing a date in the form "mm/dd/yyyy"
      */
     public Date(String date) {
-        if(date.contains("-")) {
-            String[] dateParts = date.split("-");
-            if (dateParts.length == 3) {
-                try {
-                    this.year = Integer.parseInt(dateParts[0]);
-                    this.month = Integer.parseInt(dateParts[1]);
-                    this.day = Integer.parseInt(dateParts[2]);
-                } catch (NumberFormatException ignored) {
+        this(date, 0, date.length());
+    }
+
+    /**
+     * Initializes a new instance of the Date class with a date held in a
+     * range of a character sequence, in the form "mm/dd/yyyy" or
+     * "yyyy-mm-dd". The range is parsed in place, without splitting it. A
+     * part that is not a number leaves it and the following parts at 0.
+     *
+     * @param text  the sequence holding the date
+     * @param start the start of the date
+     * @param end   the end of the date, exclusive
+     */
+    public Date(CharSequence text, int start, int end) {
+        boolean dashed = false;
+        for (int i = start; i < end && !dashed; i++) {
+            dashed = text.charAt(i) == '-';
+        }
+        char separator = dashed ? '-' : '/';
+        int firstSeparator = -1;
+        int secondSeparator = -1;
+        int thirdEnd = end;
+        int separators = 0;
+        boolean parts = true;
+        for (int i = start; i < end && parts; i++) {
+            if (text.charAt(i) == separator) {
+                separators++;
+                if (separators == 1) {
+                    firstSeparator = i;
+                } else if (separators == 2) {
+                    secondSeparator = i;
+                } else if (separators == 3) {
+                    thirdEnd = i;
                 }
+            } else if (separators >= 3) {
+                parts = false;
             }
         }
-        else{
-            String[] dateParts = date.split("/");
-            if (dateParts.length == 3) {
-                try {
-                    this.month = Integer.parseInt(dateParts[0]);
-                    this.day = Integer.parseInt(dateParts[1]);
-                    this.year = Integer.parseInt(dateParts[2]);
-                } catch (NumberFormatException ignored) {
-                }
+        long first = NOT_A_NUMBER;
+        long second = NOT_A_NUMBER;
+        long third = NOT_A_NUMBER;
+        if (parts && separators >= 2 && secondSeparator + 1 < thirdEnd) {
+            first = parsePart(text, start, firstSeparator);
+            if (first != NOT_A_NUMBER) {
+                second = parsePart(text, firstSeparator + 1, secondSeparator);
+            }
+            if (second != NOT_A_NUMBER) {
+                third = parsePart(text, secondSeparator + 1, thirdEnd);
             }
         }
+        int a = first == NOT_A_NUMBER ? 0 : (int) first;
+        int b = second == NOT_A_NUMBER ? 0 : (int) second;
+        int c = third == NOT_A_NUMBER ? 0 : (int) third;
+        int year = dashed ? a : c;
+        int month = dashed ? b : a;
+        int day = dashed ? c : b;
+        this.packed = pack(year, month, day);
+        this.parts = packed == NOT_PACKED ? new int[] {year, month, day} : null;
+    }
+
+    /**
+     * Parses a part of a date as Integer.parseInt would: an optional sign
+     * followed by decimal digits, fitting in an int.
+     *
+     * @param text  the sequence holding the part
+     * @param start the start of the part
+     * @param end   the end of the part, exclusive
+     * @return the value of the part, or NOT_A_NUMBER
+     */
+    private static long parsePart(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return NOT_A_NUMBER;
+        }
+        int i = start;
+        char sign = text.charAt(i);
+        if (sign == '-' || sign == '+') {
+            if (++i == end) {
+                return NOT_A_NUMBER;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+            if (digit < 0) {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_A_NUMBER;
+            }
+        }
+        value = sign == '-' ? -value : value;
+        return value > Integer.MAX_VALUE ? NOT_A_NUMBER : value;
+    }
+
+    /**
+     * Packs the parts of a date as yyyymmdd.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the packed date, or NOT_PACKED if a part does not fit
+     */
+    private static int pack(int year, int month, int day) {
+        if (year < 0 || year > Constants.MAX_PACKED_YEAR || month < 0 || month >= Constants.CENTENNIAL
+                || day < 0 || day >= Constants.CENTENNIAL) {
+            return NOT_PACKED;
+        }
+        return (year * Constants.CENTENNIAL + month) * Constants.CENTENNIAL + day;
+    }
+
+    /**
+     * Initializes a new instance of the Date class from its parts.
+     *
+     * @param year  the year
+     * @param month the month, 1 to 12
+     * @param day   the day of the month
+     */
+    public Date(int year, int month, int day) {
+        this.packed = pack(year, month, day);
+        this.parts = packed == NOT_PACKED ? new int[] {year, month, day} : null;
     }
 
     /**
      * Initializes a new instance of the Date class with today's date.
      */
     public Date() {
-        Calendar today = Calendar.getInstance();
-        this.month = today.get(Calendar.MONTH) + 1;
-        this.day = today.get(Calendar.DAY_OF_MONTH);
-        this.year = today.get(Calendar.YEAR);
+        this(today());
     }
 
     /**
@@ -60,9 +165,28 @@ public class Date implements Comparable<Date> {
      * @param date the date to clone
      */
     public Date(Date date) {
-        this.month = date.month;
-        this.day = date.day;
-        this.year = date.year;
+        this.packed = date.packed;
+        this.parts = date.parts;
+    }
+
+    /**
+     * Creates a date from its yyyymmdd packing.
+     *
+     * @param packed the date as yyyymmdd
+     * @return the date
+     */
+    public static Date fromPacked(int packed) {
+        return new Date(packed / Constants.PACKED_YEAR, packed / Constants.CENTENNIAL % Constants.CENTENNIAL,
+                packed % Constants.CENTENNIAL);
+    }
+
+    /**
+     * Gets the yyyymmdd packing of this date.
+     *
+     * @return the packed date, or Integer.MIN_VALUE if the date does not fit
+     */
+    public int toPacked() {
+        return packed;
     }
 
     /**
@@ -74,24 +198,34 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public int compareTo(Date date) {
-        if (this.year != date.year) {
-            return Integer.compare(this.year, date.year);
-        } else if (this.month != date.month) {
-            return Integer.compare(this.month, date.month);
-        } else if (this.day != date.day) {
-            return Integer.compare(this.day, date.day);
+        if (this.parts == null && date.parts == null) {
+            return Integer.compare(this.packed, date.packed);
+        } else if (this.getYear() != date.getYear()) {
+            return Integer.compare(this.getYear(), date.getYear());
+        } else if (this.getMonth() != date.getMonth()) {
+            return Integer.compare(this.getMonth(), date.getMonth());
         } else {
-            return 0;
+            return Integer.compare(this.getDay(), date.getDay());
         }
     }
 
     /**
-     * Returns today's date.
+     * Returns today's date. The date is computed once per day and shared, so
+     * that age checks do not go through the calendar every time.
      * 
      * @return a Date object representing today's date
      */
     public static Date today() {
-        return new Date();
+        long now = System.currentTimeMillis();
+        if (now < todayUntil) {
+            return today;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate local = LocalDate.now(zone);
+        Date date = new Date(local.getYear(), local.getMonthValue(), local.getDayOfMonth());
+        today = date;
+        todayUntil = local.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return date;
     }
 
     /**
@@ -100,6 +234,9 @@ public class Date implements Comparable<Date> {
      * @return true if this date is a valid calendar date, false otherwise
      */
     public boolean isValid() {
+        int year = getYear();
+        int month = getMonth();
+        int day = getDay();
         if (month < 1 || month > Constants.MONTHS_COUNT || day < 1 || year < 0) {
             return false;
         }
@@ -130,7 +267,7 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public String toString() {
-        return month + "/" + day + "/" + year;
+        return getMonth() + "/" + getDay() + "/" + getYear();
     }
 
     /**
@@ -139,7 +276,7 @@ public class Date implements Comparable<Date> {
      * @return day of date
      */
     public int getDay() {
-        return day;
+        return parts != null ? parts[2] : packed % Constants.CENTENNIAL;
     }
 
     /**
@@ -148,7 +285,7 @@ public class Date implements Comparable<Date> {
      * @return month of date
      */
     public int getMonth() {
-        return month;
+        return parts != null ? parts[1] : packed / Constants.CENTENNIAL % Constants.CENTENNIAL;
     }
 
     /**
@@ -157,7 +294,7 @@ public class Date implements Comparable<Date> {
      * @return year of date
      */
     public int getYear() {
-        return year;
+        return parts != null ? parts[0] : packed / Constants.PACKED_YEAR;
     }
 
     /**
@@ -166,11 +303,11 @@ public class Date implements Comparable<Date> {
      * @return age
      */
     public int getAge() {
-        Date today = new Date();
-        int age = today.getYear() - this.getYear();
-        if (today.getMonth() < this.getMonth()
-                || (today.getMonth() == this.getMonth()
-                        && today.getDay() < this.getDay())) {
+        Date current = today();
+        int age = current.getYear() - this.getYear();
+        if (parts == null ? current.packed % Constants.PACKED_YEAR < packed % Constants.PACKED_YEAR
+                : current.getMonth() < this.getMonth()
+                        || (current.getMonth() == this.getMonth() && current.getDay() < this.getDay())) {
             age--;
         }
         return age;
@@ -189,6 +326,16 @@ public class Date implements Comparable<Date> {
         if (obj == null || this.getClass() != obj.getClass())
             return false;
         Date date = (Date) obj;
-        return this.year == date.year && this.month == date.month && this.day == date.day;
+        return this.packed == date.packed && Arrays.equals(this.parts, date.parts);
+    }
+
+    /**
+     * Computes a hash code consistent with equals.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return parts != null ? Arrays.hashCode(parts) : packed;
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package banking_gui;
+
+/**
+ * Enumerates when the records appended to a Journal are forced to disk.
+ *
+ * @author Altay Ozkan
+ */
+public enum DurabilityPolicy {
+    PER_OPERATION, // every operation waits until its record is forced
+    PER_BATCH, // records are forced at the end of each batch or pipeline run
+    TIME_BOUNDED // records are forced in the background at a fixed interval
+}
@@ -0,0 +1,492 @@
+package banking_gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of the operations that change an
+ * AccountDatabase. Each record holds a sequence number and the operation,
+ * and is framed by its length and a CRC32C checksum so that a record torn
+ * by a crash is detected and dropped when the journal is reopened.
+ * Records are appended to a buffer in memory and written through a
+ * FileChannel with group commit: the first thread that needs its record on
+ * disk writes and forces every record buffered so far, while the threads
+ * arriving meanwhile wait for that force instead of issuing their own.
+ * A write or force that fails leaves the end of the file unknown, so the
+ * journal is then failed: the records not yet durable are never reported
+ * durable, and every later append or sync throws.
+ *
+ * @author Altay Ozkan
+ */
+public final class Journal implements Closeable {
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + Short.BYTES; // magic and version
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES; // length and checksum
+
+    private final FileChannel channel; // the journal file, positioned at its end
+    private final DurabilityPolicy policy; // when appended records are forced
+    private final ReentrantLock lock; // guards the buffers and sequence numbers
+    private final Condition forced; // signalled when a group commit completes
+    private final CRC32C checksum; // checksum of the record being appended
+    private ByteBuffer pending; // records appended but not yet written
+    private ByteBuffer spare; // buffer swapped in while pending is written
+    private long appended; // sequence of the last record appended
+    private long durable; // sequence of the last record forced to disk
+    private boolean flushing; // true while a thread writes and forces
+    private IOException failure; // error of the write or force that failed, null if none
+    private volatile boolean open; // false once the journal is closed
+    private final Thread flusher; // forces periodically, TIME_BOUNDED only
+
+    /**
+     * Opens a journal file for appending, creating it if needed. Records of
+     * an existing file are scanned so that sequence numbers continue after
+     * the last one, and a torn record at the end is truncated.
+     *
+     * @param path   The journal file.
+     * @param policy When appended records are forced to disk.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    public Journal(Path path, DurabilityPolicy policy) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                policy);
+    }
+
+    /**
+     * Opens a journal over a file channel that is already open. The journal
+     * owns the channel and closes it.
+     *
+     * @param channel The journal file, open for reading and writing.
+     * @param policy  When appended records are forced to disk.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    Journal(FileChannel channel, DurabilityPolicy policy) throws IOException {
+        this.channel = channel;
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.forced = lock.newCondition();
+        this.checksum = new CRC32C();
+        this.pending = ByteBuffer.allocate(Constants.JOURNAL_BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(Constants.JOURNAL_BUFFER_SIZE);
+        try {
+            long[] last = {0};
+            long end = scan(channel, record -> last[0] = record.getLong(0));
+            channel.truncate(end);
+            channel.position(end);
+            this.appended = last[0];
+            this.durable = last[0];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.open = true;
+        if (policy == DurabilityPolicy.TIME_BOUNDED) {
+            this.flusher = new Thread(this::flushPeriodically, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Gets the durability policy of the journal.
+     *
+     * @return The durability policy.
+     */
+    public DurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Appends the opening of an account, with its full initial state.
+     *
+     * @param account The opened account.
+     * @return The sequence number of the record.
+     */
+    public long appendOpen(Account account) {
+        lock.lock();
+        try {
+            int start = begin(CommandType.OPEN, RecordCodec.maxAccountBytes(account.getHolder()));
+            RecordCodec.writeAccount(pending, account);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the closing of an account.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The sequence number of the record.
+     */
+    public long appendClose(Profile holder, AccountType type) {
+        lock.lock();
+        try {
+            int start = begin(CommandType.CLOSE, RecordCodec.maxKeyBytes(holder));
+            RecordCodec.writeKey(pending, holder, type);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a deposit or a withdrawal that was applied.
+     *
+     * @param command DEPOSIT or WITHDRAW.
+     * @param holder  The profile of the account holder.
+     * @param type    The account type.
+     * @param amount  The amount posted, in cents.
+     * @return The sequence number of the record.
+     */
+    public long appendPosting(CommandType command, Profile holder, AccountType type, long amount) {
+        lock.lock();
+        try {
+            int start = begin(command, RecordCodec.maxKeyBytes(holder) + Long.BYTES);
+            RecordCodec.writeKey(pending, holder, type);
+            pending.putLong(amount);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a transfer that was applied, as a single record so that its
+     * two legs are recovered together or not at all.
+     *
+     * @param from   The account withdrawn from.
+     * @param to     The account deposited into.
+     * @param amount The amount moved, in cents.
+     * @return The sequence number of the record.
+     */
+    public long appendTransfer(Account from, Account to, long amount) {
+        lock.lock();
+        try {
+            int start = begin(CommandType.TRANSFER, RecordCodec.maxKeyBytes(from.getHolder())
+                    + RecordCodec.maxKeyBytes(to.getHolder()) + Long.BYTES);
+            RecordCodec.writeKey(pending, from.getHolder(), from.getType());
+            RecordCodec.writeKey(pending, to.getHolder(), to.getType());
+            pending.putLong(amount);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a month-end close. Replaying it closes the month again, which
+     * gives the same balances since the state before it is replayed first.
+     *
+     * @return The sequence number of the record.
+     */
+    public long appendMonthEnd() {
+        lock.lock();
+        try {
+            return end(begin(CommandType.MONTH_END, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a record durable as required by the policy after the operation
+     * that appended it. Only PER_OPERATION waits here.
+     *
+     * @param sequence The sequence number of the record.
+     */
+    public void commit(long sequence) {
+        if (policy == DurabilityPolicy.PER_OPERATION) {
+            sync(sequence);
+        }
+    }
+
+    /**
+     * Marks the end of a batch of operations. Under PER_BATCH, waits until
+     * every record appended so far is durable.
+     */
+    public void endBatch() {
+        if (policy == DurabilityPolicy.PER_BATCH) {
+            sync();
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last record appended.
+     *
+     * @return The last sequence number, 0 if the journal is empty.
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is durable.
+     */
+    public void sync() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        sync(sequence);
+    }
+
+    /**
+     * Waits until a record is durable. If no other thread is forcing the
+     * journal, this thread writes and forces every buffered record on behalf
+     * of all the waiting threads.
+     *
+     * @param sequence The sequence number of the record.
+     * @throws UncheckedIOException if the journal failed before the record
+     *                              was durable.
+     */
+    private void sync(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                checkFailure();
+                if (flushing) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                ByteBuffer out = pending;
+                long upTo = appended;
+                pending = spare;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    out.clear();
+                    lock.lock();
+                    spare = out;
+                    flushing = false;
+                    forced.signalAll();
+                }
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = upTo;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Throws the error that failed the journal, if any. The caller must hold
+     * the lock.
+     *
+     * @throws UncheckedIOException if a write or force has failed.
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal failed", failure);
+        }
+    }
+
+    /**
+     * Starts a record: makes room for it, reserves its header and writes its
+     * sequence number and operation.
+     *
+     * @param command  The operation of the record.
+     * @param maxBytes The most bytes the body of the record can take.
+     * @return The position of the record in the pending buffer.
+     * @throws UncheckedIOException if a write or force has failed.
+     */
+    private int begin(CommandType command, int maxBytes) {
+        if (!open) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkFailure();
+        int needed = RECORD_HEADER_BYTES + Long.BYTES + Byte.BYTES + maxBytes;
+        if (pending.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.position(start + RECORD_HEADER_BYTES);
+        pending.putLong(appended + 1);
+        pending.put((byte) command.ordinal());
+        return start;
+    }
+
+    /**
+     * Completes a record: fills in its length and checksum and assigns its
+     * sequence number.
+     *
+     * @param start The position of the record in the pending buffer.
+     * @return The sequence number of the record.
+     */
+    private long end(int start) {
+        int body = start + RECORD_HEADER_BYTES;
+        int length = pending.position() - body;
+        checksum.reset();
+        checksum.update(pending.array(), body, length);
+        pending.putInt(start, length);
+        pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        return ++appended;
+    }
+
+    /**
+     * Forces the journal at the fixed interval of the TIME_BOUNDED policy,
+     * until it is closed or failed.
+     */
+    private void flushPeriodically() {
+        while (open) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Constants.JOURNAL_FLUSH_MILLIS));
+            try {
+                sync();
+            } catch (UncheckedIOException e) {
+                return; // the appending threads get the failure
+            }
+        }
+    }
+
+    /**
+     * Forces every appended record and closes the journal file. The file is
+     * closed even if the journal failed.
+     *
+     * @throws IOException if the records cannot be forced or the file cannot
+     *                     be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        try {
+            sync();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            open = false;
+            if (flusher != null) {
+                LockSupport.unpark(flusher);
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the intact records of a journal file in order. The body handed
+     * to the handler starts with the sequence number and the CommandType
+     * ordinal of the record, followed by its RecordCodec fields.
+     *
+     * @param path    The journal file. A missing file has no records.
+     * @param handler Called with the body of each record.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    public static void read(Path path, Consumer<ByteBuffer> handler) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            scan(channel, handler);
+        }
+    }
+
+    /**
+     * Reads the records of a journal file in order, handing the body of each
+     * intact record to a handler. The body starts with the sequence number
+     * and the CommandType ordinal of the record. Reading stops at the end of
+     * the file or at the first torn or corrupt record.
+     * A new, empty file gets the journal file header.
+     *
+     * @param channel The journal file.
+     * @param handler Called with the body of each record.
+     * @return The position just after the last intact record.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    static long scan(FileChannel channel, Consumer<ByteBuffer> handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.JOURNAL_BUFFER_SIZE);
+        if (channel.size() == 0) {
+            buffer.putInt(Constants.JOURNAL_MAGIC).putShort(Constants.JOURNAL_VERSION).flip();
+            channel.write(buffer, 0);
+            return FILE_HEADER_BYTES;
+        }
+        buffer.limit(FILE_HEADER_BYTES);
+        channel.read(buffer, 0);
+        buffer.flip();
+        if (buffer.remaining() < FILE_HEADER_BYTES || buffer.getInt() != Constants.JOURNAL_MAGIC) {
+            throw new IOException("Not a journal file");
+        }
+        short version = buffer.getShort();
+        if (version != Constants.JOURNAL_VERSION) {
+            throw new IOException("Unsupported journal version: " + version);
+        }
+        long position = FILE_HEADER_BYTES;
+        CRC32C checksum = new CRC32C();
+        buffer.clear().flip();
+        boolean eof = false;
+        while (true) {
+            int length = buffer.remaining() >= Integer.BYTES ? buffer.getInt(buffer.position()) : 0;
+            if (length < 0 || length > channel.size() - position - RECORD_HEADER_BYTES) {
+                break; // torn or corrupt length
+            }
+            int needed = buffer.remaining() < RECORD_HEADER_BYTES ? RECORD_HEADER_BYTES : RECORD_HEADER_BYTES + length;
+            if (buffer.remaining() < needed) {
+                if (eof) {
+                    break; // torn record at the end
+                }
+                buffer.compact();
+                if (buffer.capacity() < needed) {
+                    ByteBuffer grown = ByteBuffer.allocate(needed);
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+                eof = channel.read(buffer, position + buffer.position()) < 0;
+                buffer.flip();
+                continue;
+            }
+            buffer.getInt();
+            int expected = buffer.getInt();
+            checksum.reset();
+            checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            if ((int) checksum.getValue() != expected) {
+                break; // corrupt record
+            }
+            handler.accept(buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+}
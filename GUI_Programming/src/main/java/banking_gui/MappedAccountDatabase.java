@@ -0,0 +1,840 @@
+package banking_gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * An account database kept in memory-mapped files instead of the heap, for
+ * datasets too large to hold as Account objects. Accounts are fixed-width
+ * records in one file, the holders' names are appended to a side file of
+ * strings, and the hash index over holder and type is an open addressing
+ * table in a third file. The heap footprint stays constant however many
+ * accounts are held, and the files persist the database through the OS
+ * page cache: reopening the directory restores every account.
+ * Accounts are read as detached Account objects built from their record;
+ * the reports and snapshots sort a detached copy of the accounts on the
+ * heap. Deposits and withdrawals update the mapped balance with
+ * compare-and-set, as in AccountStore, under a read lock of the structure;
+ * opening and closing accounts and closing the month take its write lock.
+ * The slots and names of closed accounts are not reclaimed.
+ * The store is selected instead of AccountDatabase by setting the
+ * banking.store system property to its directory.
+ *
+ * @author Altay Ozkan
+ */
+public class MappedAccountDatabase implements AccountRepository, Closeable {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final String RECORDS_FILE = "accounts.dat";
+    private static final String NAMES_FILE = "names.dat";
+    private static final String INDEX_FILE = "index.dat";
+    private static final int HEADER_BYTES = 64; // file header, keeps records 8-byte aligned
+    private static final int VERSION = Integer.BYTES; // header offset of the version
+    private static final int COUNT = 8; // header offset of slots used, bytes used or index capacity
+    private static final int LIVE = 16; // header offset of open accounts or index size
+
+    // Offsets of the fields in an account record.
+    private static final int BALANCE = 0;
+    private static final int WITHDRAWALS = 8;
+    private static final int DOB = 12;
+    private static final int FNAME = 16;
+    private static final int LNAME = 24;
+    private static final int TYPE = 32;
+    private static final int LOYAL = 33;
+    private static final int CAMPUS = 34;
+    private static final int RECORD_BYTES = 40;
+    private static final int ENTRY_BYTES = 2 * Integer.BYTES; // index entry: hash and slot plus one
+
+    private final FileChannel recordsChannel; // the account records
+    private final FileChannel namesChannel; // the holders' names
+    private final FileChannel indexChannel; // the hash index
+    private MappedByteBuffer records; // header then one record per slot
+    private MappedByteBuffer names; // header then UTF-8 names
+    private MappedByteBuffer index; // header then one entry per probe position
+    private final StampedLock structure; // guards open, close, the index and growth
+
+    /**
+     * Opens the database kept in a directory, creating its files if needed.
+     *
+     * @param directory The directory of the database files.
+     * @throws IOException if the files cannot be opened or are not valid.
+     */
+    public MappedAccountDatabase(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.recordsChannel = open(directory.resolve(RECORDS_FILE));
+        this.namesChannel = open(directory.resolve(NAMES_FILE));
+        this.indexChannel = open(directory.resolve(INDEX_FILE));
+        this.records = map(recordsChannel, HEADER_BYTES + (long) Constants.MAPPED_INITIAL_RECORDS * RECORD_BYTES);
+        this.names = map(namesChannel, HEADER_BYTES + (long) Constants.MAPPED_INITIAL_NAME_BYTES);
+        this.index = map(indexChannel, HEADER_BYTES + (long) Constants.INDEX_INITIAL_CAPACITY * ENTRY_BYTES);
+        if (index.getInt(COUNT) == 0) {
+            index.putInt(COUNT, Constants.INDEX_INITIAL_CAPACITY);
+        }
+        this.structure = new StampedLock();
+    }
+
+    /**
+     * Opens a database file, writing its header if it is new.
+     *
+     * @param path The file.
+     * @return The open channel.
+     * @throws IOException if the file cannot be opened or is not valid.
+     */
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            return channel;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != Constants.MAPPED_MAGIC || header.getShort(VERSION) != Constants.MAPPED_VERSION) {
+            channel.close();
+            throw new IOException("Not a database file: " + path);
+        }
+        return channel;
+    }
+
+    /**
+     * Maps a database file, growing it to at least the given size.
+     *
+     * @param channel The file.
+     * @param size    The minimum size of the mapping, in bytes.
+     * @return The mapping, with its header written.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Database file is too large to map");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, Constants.MAPPED_MAGIC);
+        buffer.putShort(VERSION, Constants.MAPPED_VERSION);
+        return buffer;
+    }
+
+    /**
+     * Gets the number of open accounts.
+     *
+     * @return The number of accounts.
+     */
+    public int size() {
+        return (int) records.getLong(LIVE);
+    }
+
+    /**
+     * Checks if the database contains a specific account, with the same
+     * family rules as AccountDatabase.contains.
+     *
+     * @param account The account to check.
+     * @return true if the account exists, false otherwise.
+     */
+    public boolean contains(Account account) {
+        long stamp = structure.readLock();
+        try {
+            return hasAccount(account.getHolder(), account.getType());
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves an account by the holder's details and exact account type.
+     *
+     * @param account The account to find based on holder's details.
+     * @return A detached copy of the account if found, otherwise null.
+     */
+    public Account getAccount(Account account) {
+        long stamp = structure.readLock();
+        try {
+            int slot = find(account.getHolder(), account.getType());
+            return slot == Constants.NOT_FOUND ? null : read(slot);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets a detached copy of every open account, ordered by account type
+     * and then profile.
+     *
+     * @return The accounts, in report order.
+     */
+    public List<Account> sorted() {
+        long stamp = structure.readLock();
+        try {
+            return collect();
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Grows the records file to hold the expected number of accounts, on
+     * top of the slots of the closed accounts.
+     *
+     * @param expectedSize The expected number of accounts.
+     */
+    public void ensureCapacity(int expectedSize) {
+        long stamp = structure.writeLock();
+        try {
+            long slots = records.getLong(COUNT) + Math.max(0, expectedSize - size());
+            if (HEADER_BYTES + slots * RECORD_BYTES > records.capacity()) {
+                records = map(recordsChannel, HEADER_BYTES + slots * RECORD_BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Calls an action with a detached copy of every open account, in slot
+     * order.
+     *
+     * @param action The action to be called.
+     */
+    public void forEach(Consumer<Account> action) {
+        long stamp = structure.readLock();
+        try {
+            long slots = records.getLong(COUNT);
+            for (int slot = 0; slot < slots; slot++) {
+                if (balance(slot) != Constants.CLOSED_BALANCE) {
+                    action.accept(read(slot));
+                }
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds a new account to the database.
+     *
+     * @param account The account to be added.
+     * @return true if the account was added, false if the holder already has
+     *         an account of that type, or a checking account for a checking
+     *         family account.
+     */
+    public boolean open(Account account) {
+        Profile holder = account.getHolder();
+        AccountType type = account.getType();
+        long stamp = structure.writeLock();
+        try {
+            if (hasAccount(holder, type)) {
+                return false;
+            }
+            int slot = (int) records.getLong(COUNT);
+            if (HEADER_BYTES + (long) (slot + 1) * RECORD_BYTES > records.capacity()) {
+                records = map(recordsChannel, HEADER_BYTES + 2L * slot * RECORD_BYTES);
+            }
+            int record = HEADER_BYTES + slot * RECORD_BYTES;
+            records.putLong(record + FNAME, putName(holder.getFname()));
+            records.putLong(record + LNAME, putName(holder.getLname()));
+            records.putInt(record + DOB, RecordCodec.packDate(holder.getDob()));
+            records.put(record + TYPE, (byte) type.ordinal());
+            records.put(record + LOYAL, (byte) (account.loyalStatus() ? 1 : 0));
+            Campus campus = account instanceof CollegeChecking college ? college.getCampus() : null;
+            records.put(record + CAMPUS, (byte) (campus == null ? Constants.NOT_FOUND : campus.ordinal()));
+            records.putInt(record + WITHDRAWALS, account.withdrawalCount());
+            LONGS.setVolatile(records, record + BALANCE, account.getBalance());
+            records.putLong(COUNT, slot + 1);
+            records.putLong(LIVE, records.getLong(LIVE) + 1);
+            put(AccountIndex.hash(holder, type), slot);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a specific account from the database. Its balance is taken so
+     * that a posting racing the close fails instead of being lost.
+     *
+     * @param account The account to be removed.
+     * @return true if the account was removed, false if it was not found.
+     */
+    public boolean close(Account account) {
+        long stamp = structure.writeLock();
+        try {
+            int position = position(account.getHolder(), account.getType());
+            if (position == Constants.NOT_FOUND) {
+                return false;
+            }
+            int slot = index.getInt(entry(position) + Integer.BYTES) - 1;
+            deleteAt(position);
+            LONGS.getAndSet(records, HEADER_BYTES + slot * RECORD_BYTES + BALANCE, Constants.CLOSED_BALANCE);
+            records.putLong(LIVE, records.getLong(LIVE) - 1);
+            return true;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deposits an amount into an account without locking its balance.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be deposited, in cents.
+     * @return TRANSACTION_DONE, or NOT_FOUND if the account is not in the
+     *         database.
+     */
+    public int deposit(Profile holder, AccountType type, long amount) {
+        long stamp = structure.readLock();
+        try {
+            int slot = find(holder, type);
+            return slot != Constants.NOT_FOUND && add(slot, amount) ? Constants.TRANSACTION_DONE
+                    : Constants.NOT_FOUND;
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Withdraws an amount from an account without locking its balance. A
+     * Money Market withdrawal is counted once it succeeds.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the
+     *         account is not in the database.
+     */
+    public int withdraw(Profile holder, AccountType type, long amount) {
+        long stamp = structure.readLock();
+        try {
+            int slot = find(holder, type);
+            return slot == Constants.NOT_FOUND ? Constants.NOT_FOUND : take(slot, type, amount);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Moves money from one account to another. Both legs are applied under
+     * the same read lock of the structure, so that neither account can be
+     * closed between them and the deposit cannot fail once the withdrawal
+     * succeeded. A concurrent reader may still see the withdrawal before
+     * the deposit.
+     *
+     * @param from   The account to withdraw from, found by exact type.
+     * @param to     The account to deposit into, found by exact type.
+     * @param amount The amount to be moved, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if either
+     *         account is not in the database.
+     */
+    public int transfer(Account from, Account to, long amount) {
+        long stamp = structure.readLock();
+        try {
+            int source = find(from.getHolder(), from.getType());
+            int target = find(to.getHolder(), to.getType());
+            if (source == Constants.NOT_FOUND || target == Constants.NOT_FOUND) {
+                return Constants.NOT_FOUND;
+            }
+            int result = take(source, from.getType(), amount);
+            if (result == Constants.TRANSACTION_DONE) {
+                add(target, amount);
+            }
+            return result;
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Processes a deposit operation on a specific account.
+     *
+     * @param account The account in which to deposit. The balance of this
+     *                account object represents the amount to be deposited.
+     */
+    public void deposit(Account account) {
+        if (deposit(account.getHolder(), account.getType(), account.getBalance()) == Constants.TRANSACTION_DONE) {
+            account.setBalance(Constants.ACCOUNT_FOUND);
+        }
+    }
+
+    /**
+     * Processes a withdrawal operation on a specific account.
+     *
+     * @param account The account from which to withdraw. The balance of this
+     *                account object represents the amount to be withdrawn.
+     * @return true if the withdrawal was successful, false otherwise.
+     */
+    public boolean withdraw(Account account) {
+        int result = withdraw(account.getHolder(), account.getType(), account.getBalance());
+        if (result == Constants.NOT_FOUND) {
+            account.setBalance(Constants.NOT_FOUND);
+            return false;
+        }
+        return result == Constants.TRANSACTION_DONE;
+    }
+
+    /**
+     * Closes the month: adds the monthly interest and takes the monthly fee
+     * of every account, with the rules of the AccountPolicy in effect, and
+     * resets the Money Market withdrawal counts. Postings wait for the
+     * close.
+     *
+     * @return The totals of the close, per account type.
+     */
+    public MonthEndTotals closeMonth() {
+        MonthEndTotals totals = new MonthEndTotals();
+        AccountPolicy policy = AccountPolicy.current();
+        AccountType[] accountTypes = AccountType.values();
+        long stamp = structure.writeLock();
+        try {
+            long slots = records.getLong(COUNT);
+            for (int slot = 0; slot < slots; slot++) {
+                long before = balance(slot);
+                if (before == Constants.CLOSED_BALANCE) {
+                    continue;
+                }
+                int record = HEADER_BYTES + slot * RECORD_BYTES;
+                int type = records.get(record + TYPE);
+                long interest = policy.monthlyInterest(type, before, records.get(record + LOYAL) == 1);
+                long fee = policy.monthlyFee(type, before, records.getInt(record + WITHDRAWALS));
+                long balance = before + interest - fee;
+                LONGS.setVolatile(records, record + BALANCE, balance);
+                if (accountTypes[type] == AccountType.MONEY_MARKET) {
+                    INTS.setVolatile(records, record + WITHDRAWALS, 0);
+                }
+                totals.add(accountTypes[type], interest, fee, balance);
+            }
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        return totals;
+    }
+
+    /**
+     * Marks the end of a batch of changes. The files are updated in place
+     * through the page cache, so there is nothing to flush; force makes the
+     * changes durable.
+     */
+    public void endBatch() {
+    }
+
+    /**
+     * Writes a snapshot of every account. The accounts are copied under the
+     * write lock of the structure, so that the snapshot sees no posting
+     * half applied, and written after it is released.
+     *
+     * @param path The snapshot file, replaced atomically.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        List<Account> accounts;
+        long stamp = structure.writeLock();
+        try {
+            accounts = collect();
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        Snapshot.write(path, accounts, accounts.size(), 0);
+    }
+
+    /**
+     * Exports every account, in sorted order, to a binary account archive.
+     *
+     * @param path The archive file, replaced if it exists.
+     * @throws IOException if the archive cannot be written.
+     */
+    public void exportAccounts(Path path) throws IOException {
+        List<Account> accounts = sorted();
+        AccountArchive.write(path, accounts, accounts.size(), 0);
+    }
+
+    /**
+     * Writes every change to the files.
+     */
+    public void force() {
+        long stamp = structure.readLock();
+        try {
+            records.force();
+            names.force();
+            index.force();
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes every change to the files and closes them.
+     *
+     * @throws IOException if a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        recordsChannel.close();
+        namesChannel.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Checks if the holder has an account of the given type, or a checking
+     * account for a checking family type. The caller holds the structure
+     * lock.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return true if such an account exists.
+     */
+    private boolean hasAccount(Profile holder, AccountType type) {
+        return find(holder, type) != Constants.NOT_FOUND
+                || (type.isChecking() && find(holder, type.sibling()) != Constants.NOT_FOUND);
+    }
+
+    /**
+     * Adds an amount to the balance of a slot with compare-and-set. The
+     * caller holds the structure lock.
+     *
+     * @param slot   The slot of the account.
+     * @param amount The amount to be added, in cents.
+     * @return true if the amount was added, false if the slot is closed.
+     */
+    private boolean add(int slot, long amount) {
+        int offset = HEADER_BYTES + slot * RECORD_BYTES + BALANCE;
+        long current = (long) LONGS.getVolatile(records, offset);
+        while (current != Constants.CLOSED_BALANCE) {
+            long witness = (long) LONGS.compareAndExchange(records, offset, current, current + amount);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Takes an amount from the balance of a slot with compare-and-set,
+     * counting a Money Market withdrawal once it succeeds. The caller holds
+     * the structure lock.
+     *
+     * @param slot   The slot of the account.
+     * @param type   The account type.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, or NOT_FOUND if the slot
+     *         is closed.
+     */
+    private int take(int slot, AccountType type, long amount) {
+        int record = HEADER_BYTES + slot * RECORD_BYTES;
+        long current = (long) LONGS.getVolatile(records, record + BALANCE);
+        while (true) {
+            if (current == Constants.CLOSED_BALANCE) {
+                return Constants.NOT_FOUND;
+            }
+            if (current < amount) {
+                return Constants.INSUFFICIENT_FUNDS;
+            }
+            long witness = (long) LONGS.compareAndExchange(records, record + BALANCE, current, current - amount);
+            if (witness == current) {
+                break;
+            }
+            current = witness;
+        }
+        if (type == AccountType.MONEY_MARKET) {
+            INTS.getAndAdd(records, record + WITHDRAWALS, 1);
+        }
+        return Constants.TRANSACTION_DONE;
+    }
+
+    /**
+     * Finds the slot of an account. The caller holds the structure lock.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The slot, or NOT_FOUND.
+     */
+    private int find(Profile holder, AccountType type) {
+        int position = position(holder, type);
+        return position == Constants.NOT_FOUND ? Constants.NOT_FOUND : index.getInt(entry(position) + Integer.BYTES) - 1;
+    }
+
+    /**
+     * Finds the probe position of an account in the index.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return The probe position, or NOT_FOUND.
+     */
+    private int position(Profile holder, AccountType type) {
+        int hash = AccountIndex.hash(holder, type);
+        int mask = index.getInt(COUNT) - 1;
+        int i = hash & mask;
+        while (true) {
+            int entry = entry(i);
+            int slot = index.getInt(entry + Integer.BYTES) - 1;
+            if (slot < 0) {
+                return Constants.NOT_FOUND;
+            }
+            if (index.getInt(entry) == hash && matches(slot, holder, type)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds a slot to the index, doubling the table when it is too full.
+     *
+     * @param hash The key hash of the account.
+     * @param slot The slot of the account.
+     * @throws IOException if the index file cannot be grown.
+     */
+    private void put(int hash, int slot) throws IOException {
+        int capacity = index.getInt(COUNT);
+        int size = index.getInt(LIVE);
+        if ((size + 1) * Constants.INDEX_LOAD_FACTOR > capacity) {
+            rehash(capacity * 2);
+            capacity *= 2;
+        }
+        int mask = capacity - 1;
+        int i = hash & mask;
+        while (index.getInt(entry(i) + Integer.BYTES) != 0) {
+            i = (i + 1) & mask;
+        }
+        index.putInt(entry(i), hash);
+        index.putInt(entry(i) + Integer.BYTES, slot + 1);
+        index.putInt(LIVE, size + 1);
+    }
+
+    /**
+     * Rebuilds the index in a table of the given capacity, using the key
+     * hashes kept in the entries.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IOException if the index file cannot be grown.
+     */
+    private void rehash(int capacity) throws IOException {
+        int oldCapacity = index.getInt(COUNT);
+        int[] hashes = new int[0];
+        int[] slots = new int[0];
+        int count = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            int slot = index.getInt(entry(i) + Integer.BYTES);
+            if (slot != 0) {
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, Math.max(count * 2, Constants.INDEX_INITIAL_CAPACITY));
+                    slots = Arrays.copyOf(slots, hashes.length);
+                }
+                hashes[count] = index.getInt(entry(i));
+                slots[count++] = slot;
+            }
+        }
+        index = map(indexChannel, HEADER_BYTES + (long) capacity * ENTRY_BYTES);
+        for (int i = 0; i < capacity; i++) {
+            index.putLong(entry(i), 0);
+        }
+        index.putInt(COUNT, capacity);
+        int mask = capacity - 1;
+        for (int k = 0; k < count; k++) {
+            int i = hashes[k] & mask;
+            while (index.getInt(entry(i) + Integer.BYTES) != 0) {
+                i = (i + 1) & mask;
+            }
+            index.putInt(entry(i), hashes[k]);
+            index.putInt(entry(i) + Integer.BYTES, slots[k]);
+        }
+    }
+
+    /**
+     * Empties a probe position of the index and shifts back the entries of
+     * the same probe run, as in AccountIndex.
+     *
+     * @param hole The probe position to empty.
+     */
+    private void deleteAt(int hole) {
+        int mask = index.getInt(COUNT) - 1;
+        int i = (hole + 1) & mask;
+        while (index.getInt(entry(i) + Integer.BYTES) != 0) {
+            int home = index.getInt(entry(i)) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index.putLong(entry(hole), index.getLong(entry(i)));
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        index.putLong(entry(hole), 0);
+        index.putInt(LIVE, index.getInt(LIVE) - 1);
+    }
+
+    /**
+     * Gets the offset of an index entry in the index file.
+     *
+     * @param position The probe position.
+     * @return The offset of the entry.
+     */
+    private static int entry(int position) {
+        return HEADER_BYTES + position * ENTRY_BYTES;
+    }
+
+    /**
+     * Checks if the record of a slot belongs to the given holder and type.
+     * The names are compared in place, without decoding them.
+     *
+     * @param slot   The slot of the record.
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @return true if the record matches, false otherwise.
+     */
+    private boolean matches(int slot, Profile holder, AccountType type) {
+        int record = HEADER_BYTES + slot * RECORD_BYTES;
+        return records.get(record + TYPE) == type.ordinal()
+                && records.getInt(record + DOB) == RecordCodec.packDate(holder.getDob())
+                && nameEquals(records.getLong(record + FNAME), holder.getFname())
+                && nameEquals(records.getLong(record + LNAME), holder.getLname());
+    }
+
+    /**
+     * Compares a stored name to a name, ignoring case as
+     * String.equalsIgnoreCase does. An ASCII name is compared byte by byte
+     * without allocating; a name with other characters is decoded first.
+     *
+     * @param reference The reference returned by putName.
+     * @param name      The name to compare to.
+     * @return true if the names are equal, ignoring case.
+     */
+    private boolean nameEquals(long reference, String name) {
+        int length = (int) (reference & Constants.MAX_NAME_BYTES);
+        int offset = (int) (reference >>> Short.SIZE);
+        if (length < name.length()) {
+            return false; // a name never has more chars than UTF-8 bytes
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = names.get(offset + i);
+            if (b < 0) {
+                return getName(reference).equalsIgnoreCase(name);
+            }
+            if (i == name.length() || !equalsIgnoreCase((char) b, name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two chars, ignoring case as String.equalsIgnoreCase does.
+     *
+     * @param a The first char.
+     * @param b The second char.
+     * @return true if the chars are equal, ignoring case.
+     */
+    private static boolean equalsIgnoreCase(char a, char b) {
+        if (a == b) {
+            return true;
+        }
+        char upperA = Character.toUpperCase(a);
+        char upperB = Character.toUpperCase(b);
+        return upperA == upperB || Character.toLowerCase(upperA) == Character.toLowerCase(upperB);
+    }
+
+    /**
+     * Copies every open account, ordered by account type and then profile.
+     * The caller holds the structure lock.
+     *
+     * @return The detached accounts, in report order.
+     */
+    private List<Account> collect() {
+        List<Account> accounts = new ArrayList<>(size());
+        long slots = records.getLong(COUNT);
+        for (int slot = 0; slot < slots; slot++) {
+            if (balance(slot) != Constants.CLOSED_BALANCE) {
+                accounts.add(read(slot));
+            }
+        }
+        accounts.sort(TYPE_PROFILE_ORDER);
+        return accounts;
+    }
+
+    /**
+     * Builds a detached account from the record of a slot.
+     *
+     * @param slot The slot of the record.
+     * @return The account.
+     */
+    private Account read(int slot) {
+        int record = HEADER_BYTES + slot * RECORD_BYTES;
+        Profile holder = new Profile(getName(records.getLong(record + FNAME)),
+                getName(records.getLong(record + LNAME)), RecordCodec.unpackDate(records.getInt(record + DOB)));
+        long balance = balance(slot);
+        int loyal = records.get(record + LOYAL);
+        return switch (AccountType.values()[records.get(record + TYPE)]) {
+            case CHECKING -> new Checking(holder, balance);
+            case COLLEGE_CHECKING -> new CollegeChecking(holder, balance, records.get(record + CAMPUS));
+            case SAVINGS -> new Savings(holder, balance, loyal);
+            case MONEY_MARKET -> {
+                MoneyMarket moneyMarket = new MoneyMarket(holder, balance, loyal);
+                moneyMarket.setWithdrawals((int) INTS.getVolatile(records, record + WITHDRAWALS));
+                yield moneyMarket;
+            }
+        };
+    }
+
+    /**
+     * Gets the balance of a slot.
+     *
+     * @param slot The slot of the record.
+     * @return The balance in cents, or CLOSED_BALANCE if closed.
+     */
+    private long balance(int slot) {
+        return (long) LONGS.getVolatile(records, HEADER_BYTES + slot * RECORD_BYTES + BALANCE);
+    }
+
+    /**
+     * Appends a name to the names file.
+     *
+     * @param name The name to be stored.
+     * @return A reference to the name: its offset shifted left by 16 bits,
+     *         or'ed with its byte length.
+     * @throws IOException if the names file cannot be grown.
+     */
+    private long putName(String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Constants.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name too long: " + bytes.length + " bytes");
+        }
+        long end = Math.max(names.getLong(COUNT), HEADER_BYTES);
+        if (end + bytes.length > names.capacity()) {
+            names = map(namesChannel, 2 * (end + bytes.length));
+        }
+        names.put((int) end, bytes);
+        names.putLong(COUNT, end + bytes.length);
+        return end << Short.SIZE | bytes.length;
+    }
+
+    /**
+     * Reads a name from the names file.
+     *
+     * @param reference The reference returned by putName.
+     * @return The name.
+     */
+    private String getName(long reference) {
+        byte[] bytes = new byte[(int) (reference & Constants.MAX_NAME_BYTES)];
+        names.get((int) (reference >>> Short.SIZE), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
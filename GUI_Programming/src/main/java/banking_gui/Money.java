@@ -0,0 +1,237 @@
+package banking_gui;
+
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic. Amounts are held in a long as a number of
+ * cents, so that balances stay exact and primitive. Every operation that
+ * can lose precision takes an explicit rounding mode.
+ *
+ * @author Altay Ozkan
+ */
+public final class Money {
+
+    /**
+     * Money only provides static methods and is not instantiated.
+     */
+    private Money() {
+    }
+
+    /**
+     * Parses a decimal amount of dollars, such as "1200" or "2909.10", into
+     * cents. Digits after the cents are rounded half even.
+     *
+     * @param text The amount to be parsed.
+     * @return The amount in cents.
+     * @throws NumberFormatException if the text is not a valid amount.
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses a decimal amount of dollars held in a range of a character
+     * sequence into cents, without copying the range.
+     *
+     * @param text  The sequence holding the amount.
+     * @param start The start of the amount.
+     * @param end   The end of the amount, exclusive.
+     * @return The amount in cents.
+     * @throws NumberFormatException if the range is not a valid amount.
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        try {
+            return parseCents(text, start, end);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text.subSequence(start, end));
+        }
+    }
+
+    /**
+     * Parses a decimal amount of dollars into cents.
+     *
+     * @param text The sequence holding the amount.
+     * @param from The start of the amount.
+     * @param to   The end of the amount, exclusive.
+     * @return The amount in cents.
+     * @throws NumberFormatException if the text is not a valid amount.
+     * @throws ArithmeticException   if the amount does not fit in a long.
+     */
+    private static long parseCents(CharSequence text, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+        long units = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        boolean sticky = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits < 0 || fractionDigits < Constants.CENT_DIGITS) {
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (fractionDigits == Constants.CENT_DIGITS) {
+                    roundUp = c >= '5';
+                    sticky = c > '5';
+                    fractionDigits++;
+                } else {
+                    sticky |= c != '0';
+                }
+            } else {
+                return fromDouble(Double.parseDouble(text.subSequence(from, to).toString()));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a valid amount: " + text.subSequence(from, to));
+        }
+        for (int i = Math.max(fractionDigits, 0); i < Constants.CENT_DIGITS; i++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        if (roundUp && (sticky || (units & 1) != 0)) {
+            units++;
+        }
+        return negative ? -units : units;
+    }
+
+    /**
+     * Converts an amount of dollars held in a double into cents, rounding
+     * half even.
+     *
+     * @param amount The amount in dollars.
+     * @return The amount in cents.
+     */
+    public static long fromDouble(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new NumberFormatException("Not a valid amount: " + amount);
+        }
+        double cents = Math.rint(amount * Constants.CENTS_PER_DOLLAR);
+        if (Math.abs(cents) >= Long.MAX_VALUE) {
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+        return (long) cents;
+    }
+
+    /**
+     * Converts an amount in cents into dollars held in a double, for display
+     * purposes only.
+     *
+     * @param cents The amount in cents.
+     * @return The amount in dollars.
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) Constants.CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Formats an amount in cents as dollars with grouping separators and two
+     * decimals, such as "1,234.50".
+     *
+     * @param cents The amount in cents.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        StringBuilder text = new StringBuilder(Constants.MONEY_TEXT_CAPACITY);
+        appendTo(text, cents);
+        return text.toString();
+    }
+
+    /**
+     * Appends an amount in cents as dollars with grouping separators and two
+     * decimals, such as "1,234.50".
+     *
+     * @param text  The text to append to.
+     * @param cents The amount in cents.
+     */
+    public static void appendTo(StringBuilder text, long cents) {
+        if (cents < 0) {
+            text.append('-');
+        }
+        long dollars = Math.abs(cents / Constants.CENTS_PER_DOLLAR);
+        int remainder = (int) Math.abs(cents % Constants.CENTS_PER_DOLLAR);
+        int start = text.length();
+        do {
+            if ((text.length() - start) % 4 == 3) {
+                text.append(',');
+            }
+            text.append((char) ('0' + dollars % 10));
+            dollars /= 10;
+        } while (dollars > 0);
+        reverse(text, start, text.length() - 1);
+        text.append('.').append((char) ('0' + remainder / 10)).append((char) ('0' + remainder % 10));
+    }
+
+    /**
+     * Computes one month of interest on an amount at an annual rate.
+     *
+     * @param cents      The amount in cents.
+     * @param annualRate The annual rate in millionths (Constants.RATE_SCALE).
+     * @param mode       The rounding mode for fractions of a cent.
+     * @return The monthly interest in cents.
+     */
+    public static long monthlyInterest(long cents, long annualRate, RoundingMode mode) {
+        return divide(Math.multiplyExact(cents, annualRate),
+                (long) Constants.RATE_SCALE * Constants.MONTHS_COUNT, mode);
+    }
+
+    /**
+     * Divides two longs, rounding the quotient with the given rounding mode.
+     *
+     * @param dividend The dividend.
+     * @param divisor  The divisor, positive.
+     * @param mode     The rounding mode.
+     * @return The rounded quotient.
+     * @throws ArithmeticException if the mode is UNNECESSARY and the division
+     *                             is not exact.
+     */
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        long quotient = Math.floorDiv(dividend, divisor);
+        long remainder = dividend - quotient * divisor; // 0 <= remainder < divisor
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twice = remainder * 2;
+        boolean up = switch (mode) {
+            case FLOOR -> false;
+            case CEILING -> true;
+            case DOWN -> quotient < 0;
+            case UP -> quotient >= 0;
+            case HALF_UP -> twice > divisor || (twice == divisor && quotient >= 0);
+            case HALF_DOWN -> twice > divisor || (twice == divisor && quotient < 0);
+            case HALF_EVEN -> twice > divisor || (twice == divisor && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+        return up ? quotient + 1 : quotient;
+    }
+
+    /**
+     * Reverses a range of characters in place.
+     *
+     * @param text  The text holding the characters.
+     * @param left  The first index of the range.
+     * @param right The last index of the range.
+     */
+    private static void reverse(StringBuilder text, int left, int right) {
+        while (left < right) {
+            char c = text.charAt(left);
+            text.setCharAt(left++, text.charAt(right));
+            text.setCharAt(right--, c);
+        }
+    }
+}
@@ -17,61 +17,50 @@ public class MoneyMarket extends Savings {
      * Constructor for the MoneyMarket account.
      *
      * @param holder  The profile of the account holder.
-     * @param balance The initial balance of the account.
+     * @param balance The initial balance of the account, in cents.
      * @param code    A specific code related to the account (its exact meaning is
      *                not detailed in the provided code).
      */
-    public MoneyMarket(Profile holder, double balance, int code) {
+    public MoneyMarket(Profile holder, long balance, int code) {
         super(holder, balance, code);
         this.withdrawal = 0;
-        this.isLoyal = true; // By default, set the account as loyal.
     }
 
     /**
-     * Calculates the monthly interest for the money market account.
-     *
-     * @return The monthly interest amount.
+     * 
+     * Resets the withdrawals value of the account to 0.
      */
-    @Override
-    public double monthlyInterest() {
-        double interestRate = Constants.MM_INTEREST;
-        if (isLoyal) {
-            interestRate += Constants.LOYAL_BONUS;
+    public void resetWithdrawals() {
+        if (store == null) {
+            this.withdrawal = 0;
+        } else {
+            store.setWithdrawals(slot, 0);
         }
-        return balance * (interestRate / Constants.MONTHS_COUNT); // Monthly interest
     }
 
     /**
-     * Determines the monthly fee for the money market account.
-     * The fee is based on the account balance and the number of withdrawals.
+     * Sets the withdrawal count of the account, as restored from a snapshot
+     * or a journal.
      *
-     * @return The monthly fee amount.
+     * @param count The withdrawal count.
      */
-    @Override
-    public double monthlyFee() {
-        if (balance >= Constants.MIN_BALANCE_LOYAL && withdrawal <= Constants.WITHDRAW_LIMIT) {
-            return 0;
-        } else if (withdrawal > Constants.WITHDRAW_LIMIT && balance >= Constants.MIN_BALANCE_LOYAL) {
-            return Constants.FEE_WITHDRAW_OVER_LIMIT;
-        } else if (withdrawal > Constants.WITHDRAW_LIMIT && balance < Constants.MIN_BALANCE_LOYAL) {
-            return Constants.MM_PLUS_FEE;
+    void setWithdrawals(int count) {
+        if (store == null) {
+            this.withdrawal = count;
+        } else {
+            store.setWithdrawals(slot, count);
         }
-        return Constants.SAVINGS_FEE;
-    }
-
-    /**
-     * 
-     * Resets the withdrawals value of the account to 0.
-     */
-    public void resetWithdrawals() {
-        this.withdrawal = 0;
     }
 
     /**
      * Increments the withdrawal counter for the account.
      */
     public void incrementWithdrawals() {
-        this.withdrawal++;
+        if (store == null) {
+            this.withdrawal++;
+        } else {
+            store.incrementWithdrawals(slot);
+        }
     }
 
     /**
@@ -80,7 +69,50 @@ public class MoneyMarket extends Savings {
      * @return The current withdrawal count.
      */
     public int getWithdrawals() {
-        return this.withdrawal;
+        return store == null ? this.withdrawal : store.withdrawals(slot);
+    }
+
+    /**
+     * Gets the withdrawals made this month.
+     *
+     * @return The withdrawal count.
+     */
+    @Override
+    int withdrawalCount() {
+        return getWithdrawals();
+    }
+
+    /**
+     * Turns the account into a view over a slot of the store, copying the
+     * withdrawal count into its column.
+     *
+     * @param store The store holding the account.
+     * @param slot  The slot of the account in the store.
+     */
+    @Override
+    void attach(AccountStore store, int slot) {
+        super.attach(store, slot);
+        store.setWithdrawals(slot, withdrawal);
+    }
+
+    /**
+     * Copies the withdrawal count back from the slot and detaches the
+     * account.
+     */
+    @Override
+    void detach() {
+        withdrawal = store.withdrawals(slot);
+        super.detach();
+    }
+
+    /**
+     * Gets the type of the account.
+     *
+     * @return the account type
+     */
+    @Override
+    public AccountType getType() {
+        return AccountType.MONEY_MARKET;
     }
 
     /**
@@ -0,0 +1,110 @@
+package banking_gui;
+
+import java.math.RoundingMode;
+
+/**
+ * Computes the monthly interest and fee of a run of slots of one storage
+ * segment straight from its primitive columns, with the rules of an
+ * AccountPolicy, as the monthlyInterest() and monthlyFee() of each account
+ * would. When the
+ * jdk.incubator.vector module is present, whole blocks of slots are computed
+ * with SIMD instructions by VectorMonthEnd; otherwise, or for the slots left
+ * over, a scalar loop is used. Both give the same amounts.
+ *
+ * @author Altay Ozkan
+ */
+public final class MonthEndKernel {
+    private static final boolean VECTORIZED = vectorAvailable(); // true if blocks are computed by VectorMonthEnd
+
+    /**
+     * MonthEndKernel only provides static methods and is not instantiated.
+     */
+    private MonthEndKernel() {
+    }
+
+    /**
+     * Checks if the vectorized kernel can be used: the incubator module must
+     * be resolved, the hardware must hold several longs per vector, and the
+     * interest must be rounded half even, as the kernel does.
+     *
+     * @return true if VectorMonthEnd can be used.
+     */
+    private static boolean vectorAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()
+                || Constants.INTEREST_ROUNDING != RoundingMode.HALF_EVEN) {
+            return false;
+        }
+        try {
+            return VectorMonthEnd.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the month end is computed with SIMD instructions.
+     *
+     * @return true if the vectorized kernel is in use.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Computes the monthly interest and fee of a run of slots of a segment.
+     * The amounts computed for closed slots are meaningless and must be
+     * ignored.
+     *
+     * @param policy      The interest and fee rules.
+     * @param accounts    The account views of the segment, null for a closed slot.
+     * @param balances    The balances of the segment, in cents, with no deposit
+     *                    left in hot cells.
+     * @param types       The AccountType ordinals of the segment.
+     * @param loyalty     The loyal customer bits of the segment.
+     * @param withdrawals The withdrawal counts of the segment.
+     * @param from        The offset of the first slot.
+     * @param to          The end of the run, exclusive.
+     * @param interest    Receives the interest of each slot, in cents.
+     * @param fees        Receives the fee of each slot, in cents.
+     * @throws ArithmeticException if an interest overflows a long.
+     */
+    public static void compute(AccountPolicy policy, Account[] accounts, long[] balances, byte[] types,
+                               long[] loyalty, int[] withdrawals, int from, int to, long[] interest, long[] fees) {
+        if (VECTORIZED) {
+            from = VectorMonthEnd.compute(policy, accounts, balances, types, loyalty, withdrawals,
+                    from, to, interest, fees);
+        }
+        computeScalar(policy, accounts, balances, types, loyalty, withdrawals, from, to, interest, fees);
+    }
+
+    /**
+     * Computes the monthly interest and fee of a run of slots one slot at a
+     * time.
+     *
+     * @param policy      The interest and fee rules.
+     * @param accounts    The account views of the segment, null for a closed slot.
+     * @param balances    The balances of the segment, in cents.
+     * @param types       The AccountType ordinals of the segment.
+     * @param loyalty     The loyal customer bits of the segment.
+     * @param withdrawals The withdrawal counts of the segment.
+     * @param from        The offset of the first slot.
+     * @param to          The end of the run, exclusive.
+     * @param interest    Receives the interest of each slot, in cents.
+     * @param fees        Receives the fee of each slot, in cents.
+     * @throws ArithmeticException if an interest overflows a long.
+     */
+    static void computeScalar(AccountPolicy policy, Account[] accounts, long[] balances, byte[] types,
+                              long[] loyalty, int[] withdrawals, int from, int to, long[] interest, long[] fees) {
+        for (int i = from; i < to; i++) {
+            if (accounts[i] == null) {
+                interest[i] = 0;
+                fees[i] = 0;
+                continue;
+            }
+            long balance = balances[i];
+            boolean status = (loyalty[i >>> 6] & (1L << i)) != 0;
+            interest[i] = policy.monthlyInterest(types[i], balance, status);
+            fees[i] = policy.monthlyFee(types[i], balance, withdrawals[i]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package banking_gui;
+
+/**
+ * Totals of a month-end close, per account type: the number of accounts,
+ * the interest paid, the fees charged and the balances once both are
+ * applied. Totals of disjoint ranges of accounts are merged into one.
+ *
+ * @author Altay Ozkan
+ */
+public class MonthEndTotals {
+    private final int[] accounts = new int[AccountType.values().length]; // accounts closed, per type
+    private final long[] interest = new long[AccountType.values().length]; // interest paid, in cents
+    private final long[] fees = new long[AccountType.values().length]; // fees charged, in cents
+    private final long[] balances = new long[AccountType.values().length]; // balances after the close, in cents
+
+    /**
+     * Creates totals of no accounts.
+     */
+    MonthEndTotals() {
+    }
+
+    /**
+     * Adds the close of one account.
+     *
+     * @param type     The account type.
+     * @param interest The interest paid, in cents.
+     * @param fee      The fee charged, in cents.
+     * @param balance  The balance after the close, in cents.
+     */
+    public void add(AccountType type, long interest, long fee, long balance) {
+        int i = type.ordinal();
+        this.accounts[i]++;
+        this.interest[i] += interest;
+        this.fees[i] += fee;
+        this.balances[i] += balance;
+    }
+
+    /**
+     * Adds the totals of another range of accounts to these totals.
+     *
+     * @param other The totals to be merged.
+     * @return These totals.
+     */
+    public MonthEndTotals merge(MonthEndTotals other) {
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] += other.accounts[i];
+            interest[i] += other.interest[i];
+            fees[i] += other.fees[i];
+            balances[i] += other.balances[i];
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of accounts of a type.
+     *
+     * @param type The account type.
+     * @return The number of accounts closed.
+     */
+    public int getAccounts(AccountType type) {
+        return accounts[type.ordinal()];
+    }
+
+    /**
+     * Gets the interest paid to the accounts of a type.
+     *
+     * @param type The account type.
+     * @return The interest, in cents.
+     */
+    public long getInterest(AccountType type) {
+        return interest[type.ordinal()];
+    }
+
+    /**
+     * Gets the fees charged to the accounts of a type.
+     *
+     * @param type The account type.
+     * @return The fees, in cents.
+     */
+    public long getFees(AccountType type) {
+        return fees[type.ordinal()];
+    }
+
+    /**
+     * Gets the balances of the accounts of a type after the close.
+     *
+     * @param type The account type.
+     * @return The sum of the balances, in cents.
+     */
+    public long getBalance(AccountType type) {
+        return balances[type.ordinal()];
+    }
+}
@@ -0,0 +1,20 @@
+package banking_gui;
+
+/**
+ * A consumer of the commands applied by a TransactionPipeline, such as a
+ * journal, a report view or a metrics collector. Each listener runs on its
+ * own thread and sees every command in pipeline order.
+ *
+ * @author Altay Ozkan
+ */
+public interface PipelineListener {
+
+    /**
+     * Called once for every command, after the writer has applied it. The
+     * command must not be kept after the call returns, since its ring entry
+     * is reused.
+     *
+     * @param command The applied command.
+     */
+    void onCommand(TransactionCommand command);
+}
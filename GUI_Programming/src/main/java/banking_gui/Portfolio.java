@@ -0,0 +1,180 @@
+package banking_gui;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of the accounts of an AccountDatabase, per account type and
+ * per Campus of the College Checking accounts: the number of accounts, the
+ * sum of their balances, and the interest and fee they would be charged if
+ * the month ended now under the AccountPolicy in effect. The totals are
+ * updated by the AccountStore as accounts are opened and closed and as
+ * their balances change, so that reading them never scans the accounts.
+ * Each total is a LongAdder, so that concurrent postings do not contend.
+ * Deposits held in the cells of a hot account count in the balances at
+ * once, and in the projections when they are folded into its balance.
+ *
+ * @author Altay Ozkan
+ */
+public class Portfolio {
+    private final LongAdder[] typeCounts = adders(AccountType.values().length); // accounts, per type
+    private final LongAdder[] typeBalances = adders(AccountType.values().length); // balances, per type
+    private final LongAdder[] typeInterest = adders(AccountType.values().length); // projected interest, per type
+    private final LongAdder[] typeFees = adders(AccountType.values().length); // projected fees, per type
+    private final LongAdder[] campusCounts = adders(Campus.values().length); // accounts, per campus
+    private final LongAdder[] campusBalances = adders(Campus.values().length); // balances, per campus
+    private final LongAdder[] campusInterest = adders(Campus.values().length); // projected interest, per campus
+    private final LongAdder[] campusFees = adders(Campus.values().length); // projected fees, per campus
+
+    /**
+     * Creates a portfolio with every total 0, for an empty store.
+     */
+    Portfolio() {
+    }
+
+    /**
+     * Creates a row of totals.
+     *
+     * @param length The number of totals.
+     * @return The totals, all 0.
+     */
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Adds a change to the totals of an account type, and to those of a
+     * campus for a College Checking account.
+     *
+     * @param type     The AccountType ordinal.
+     * @param campus   The Campus ordinal, or NOT_FOUND if the account has none.
+     * @param count    The change in the number of accounts.
+     * @param balance  The change in the balances, in cents.
+     * @param interest The change in the projected interest, in cents.
+     * @param fee      The change in the projected fees, in cents.
+     */
+    void add(int type, int campus, int count, long balance, long interest, long fee) {
+        add(typeCounts[type], count);
+        add(typeBalances[type], balance);
+        add(typeInterest[type], interest);
+        add(typeFees[type], fee);
+        if (type == AccountType.COLLEGE_CHECKING.ordinal() && campus >= 0) {
+            add(campusCounts[campus], count);
+            add(campusBalances[campus], balance);
+            add(campusInterest[campus], interest);
+            add(campusFees[campus], fee);
+        }
+    }
+
+    /**
+     * Adds a change to a total, skipping the changes of 0 so that most
+     * postings only touch the totals they move.
+     *
+     * @param total The total.
+     * @param delta The change.
+     */
+    private static void add(LongAdder total, long delta) {
+        if (delta != 0) {
+            total.add(delta);
+        }
+    }
+
+    /**
+     * Gets the number of accounts of a type.
+     *
+     * @param type The account type.
+     * @return The number of open accounts.
+     */
+    public long getCount(AccountType type) {
+        return typeCounts[type.ordinal()].sum();
+    }
+
+    /**
+     * Gets the sum of the balances of the accounts of a type.
+     *
+     * @param type The account type.
+     * @return The balances, in cents.
+     */
+    public long getBalance(AccountType type) {
+        return typeBalances[type.ordinal()].sum();
+    }
+
+    /**
+     * Gets the monthly interest the accounts of a type would earn now.
+     *
+     * @param type The account type.
+     * @return The projected interest, in cents.
+     */
+    public long getProjectedInterest(AccountType type) {
+        return typeInterest[type.ordinal()].sum();
+    }
+
+    /**
+     * Gets the monthly fees the accounts of a type would be charged now.
+     *
+     * @param type The account type.
+     * @return The projected fees, in cents.
+     */
+    public long getProjectedFees(AccountType type) {
+        return typeFees[type.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of College Checking accounts of a campus.
+     *
+     * @param campus The campus.
+     * @return The number of open accounts.
+     */
+    public long getCount(Campus campus) {
+        return campusCounts[campus.ordinal()].sum();
+    }
+
+    /**
+     * Gets the sum of the balances of the College Checking accounts of a
+     * campus.
+     *
+     * @param campus The campus.
+     * @return The balances, in cents.
+     */
+    public long getBalance(Campus campus) {
+        return campusBalances[campus.ordinal()].sum();
+    }
+
+    /**
+     * Gets the monthly interest the College Checking accounts of a campus
+     * would earn now.
+     *
+     * @param campus The campus.
+     * @return The projected interest, in cents.
+     */
+    public long getProjectedInterest(Campus campus) {
+        return campusInterest[campus.ordinal()].sum();
+    }
+
+    /**
+     * Gets the monthly fees the College Checking accounts of a campus would
+     * be charged now.
+     *
+     * @param campus The campus.
+     * @return The projected fees, in cents.
+     */
+    public long getProjectedFees(Campus campus) {
+        return campusFees[campus.ordinal()].sum();
+    }
+
+    /**
+     * Gets the sum of the balances of all accounts.
+     *
+     * @return The balances, in cents.
+     */
+    public long getTotalBalance() {
+        long total = 0;
+        for (LongAdder balance : typeBalances) {
+            total += balance.sum();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,204 @@
+package banking_gui;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of accounts shared by the journal and the snapshots.
+ * Names are written as a length-prefixed UTF-8 string, dates packed into a
+ * single int as yyyymmdd and balances as cents.
+ *
+ * @author Altay Ozkan
+ */
+public final class RecordCodec {
+
+    /**
+     * RecordCodec only provides static methods and is not instantiated.
+     */
+    private RecordCodec() {
+    }
+
+    /**
+     * Writes the full state of an account: its key, balance, loyalty status,
+     * campus code and withdrawal count.
+     *
+     * @param buffer  The buffer to write to.
+     * @param account The account to be written.
+     * @throws java.nio.BufferOverflowException if the buffer is too small.
+     */
+    public static void writeAccount(ByteBuffer buffer, Account account) {
+        writeKey(buffer, account.getHolder(), account.getType());
+        buffer.putLong(account.getBalance());
+        buffer.put((byte) (account.loyalStatus() ? 1 : 0));
+        Campus campus = account instanceof CollegeChecking college ? college.getCampus() : null;
+        buffer.put((byte) (campus == null ? Constants.NOT_FOUND : campus.ordinal()));
+        buffer.putInt(account.withdrawalCount());
+    }
+
+    /**
+     * Reads the full state of an account written by writeAccount.
+     *
+     * @param buffer The buffer to read from.
+     * @return A new, detached account.
+     * @throws java.nio.BufferUnderflowException if the record is truncated.
+     */
+    public static Account readAccount(ByteBuffer buffer) {
+        AccountType type = readType(buffer);
+        Profile holder = readProfile(buffer);
+        long balance = buffer.getLong();
+        int loyal = buffer.get();
+        int campus = buffer.get();
+        int withdrawals = buffer.getInt();
+        return switch (type) {
+            case CHECKING -> new Checking(holder, balance);
+            case COLLEGE_CHECKING -> new CollegeChecking(holder, balance, campus);
+            case SAVINGS -> new Savings(holder, balance, loyal);
+            case MONEY_MARKET -> {
+                MoneyMarket moneyMarket = new MoneyMarket(holder, balance, loyal);
+                moneyMarket.setWithdrawals(withdrawals);
+                yield moneyMarket;
+            }
+        };
+    }
+
+    /**
+     * Computes the most bytes writeAccount can take for an account.
+     *
+     * @param holder The profile of the account holder.
+     * @return The upper bound of the encoded length.
+     */
+    public static int maxAccountBytes(Profile holder) {
+        return maxKeyBytes(holder) + Long.BYTES + 2 * Byte.BYTES + Integer.BYTES;
+    }
+
+    /**
+     * Computes the most bytes writeKey can take for a holder. A char never
+     * takes more than three bytes in UTF-8.
+     *
+     * @param holder The profile of the account holder.
+     * @return The upper bound of the encoded length.
+     */
+    public static int maxKeyBytes(Profile holder) {
+        return Byte.BYTES + 2 * Short.BYTES + 3 * (holder.getFname().length() + holder.getLname().length())
+                + Integer.BYTES;
+    }
+
+    /**
+     * Writes the key of an account: its type and the holder's profile.
+     *
+     * @param buffer The buffer to write to.
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     */
+    public static void writeKey(ByteBuffer buffer, Profile holder, AccountType type) {
+        buffer.put((byte) type.ordinal());
+        writeString(buffer, holder.getFname());
+        writeString(buffer, holder.getLname());
+        buffer.putInt(packDate(holder.getDob()));
+    }
+
+    /**
+     * Reads the key of an account written by writeKey.
+     *
+     * @param buffer The buffer to read from.
+     * @return A new, detached account of the key's type and holder, with a
+     *         zero balance, identifying the account in the database.
+     */
+    public static Account readKey(ByteBuffer buffer) {
+        AccountType type = readType(buffer);
+        Profile holder = readProfile(buffer);
+        return switch (type) {
+            case CHECKING -> new Checking(holder, 0);
+            case COLLEGE_CHECKING -> new CollegeChecking(holder, 0, Constants.NOT_FOUND);
+            case SAVINGS -> new Savings(holder, 0, 0);
+            case MONEY_MARKET -> new MoneyMarket(holder, 0, 0);
+        };
+    }
+
+    /**
+     * Reads an account type written by writeKey.
+     *
+     * @param buffer The buffer to read from.
+     * @return The account type.
+     * @throws IllegalArgumentException if the type code is unknown.
+     */
+    public static AccountType readType(ByteBuffer buffer) {
+        int code = buffer.get();
+        AccountType[] types = AccountType.values();
+        if (code < 0 || code >= types.length) {
+            throw new IllegalArgumentException("Unknown account type code: " + code);
+        }
+        return types[code];
+    }
+
+    /**
+     * Reads the holder's profile written by writeKey after the account type.
+     *
+     * @param buffer The buffer to read from.
+     * @return The profile of the account holder.
+     */
+    public static Profile readProfile(ByteBuffer buffer) {
+        String fname = readString(buffer);
+        String lname = readString(buffer);
+        return new Profile(fname, lname, unpackDate(buffer.getInt()));
+    }
+
+    /**
+     * Writes a string as an unsigned short byte length and its UTF-8 bytes.
+     *
+     * @param buffer The buffer to write to.
+     * @param s      The string to be written.
+     * @throws IllegalArgumentException if the string is too long.
+     */
+    public static void writeString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Constants.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name too long: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string.
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (!buffer.hasArray()) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+
+    /**
+     * Packs a date into a single int as yyyymmdd.
+     *
+     * @param date The date to be packed.
+     * @return The packed date.
+     */
+    public static int packDate(Date date) {
+        return date.toPacked();
+    }
+
+    /**
+     * Unpacks a date packed by packDate.
+     *
+     * @param packed The packed date.
+     * @return The date.
+     */
+    public static Date unpackDate(int packed) {
+        return Date.fromPacked(packed);
+    }
+}
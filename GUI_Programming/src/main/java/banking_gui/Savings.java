@@ -18,10 +18,10 @@ public class Savings extends Account {
      * customer loyalty status.
      *
      * @param holder  the profile of the account holder
-     * @param balance the initial balance of the account
+     * @param balance the initial balance of the account, in cents
      * @param code the loyalty status of the account holder
      */
-    public Savings(Profile holder, double balance, int code) {
+    public Savings(Profile holder, long balance, int code) {
         super(holder, balance);
         switch (code) {
             case 0 -> this.isLoyal = false;
@@ -29,36 +29,6 @@ public class Savings extends Account {
         }
     }
 
-    /**
-     * Calculates the monthly interest for the savings account.
-     * Loyal customers receive an additional bonus to their interest rate.
-     *
-     * @return the monthly interest amount
-     */
-    @Override
-    public double monthlyInterest() {
-        double interestRate = Constants.SAVINGS_INTEREST;
-        if (isLoyal) {
-            interestRate += Constants.LOYAL_BONUS;
-        }
-        return balance * (interestRate / Constants.MONTHS_COUNT); // Monthly interest
-    }
-
-    /**
-     * Calculates the monthly fee for the savings account.
-     * Fee is waived if the balance is greater than or equal to the threshold.
-     *
-     * @return the monthly fee amount
-     */
-    @Override
-    public double monthlyFee() {
-        if (balance >= Constants.NO_FEE_BALANCE) {
-            return 0;
-        } else {
-            return Constants.SAVINGS_FEE;
-        }
-    }
-
     /**
      * Compares this savings account to another object to determine equality.
      * Savings accounts are considered equal if their holders are the same.
@@ -75,6 +45,16 @@ public class Savings extends Account {
         return false;
     }
 
+    /**
+     * Gets the type of the account.
+     *
+     * @return the account type
+     */
+    @Override
+    public AccountType getType() {
+        return AccountType.SAVINGS;
+    }
+
     /**
      * Prints the class name of the account.
      * 
@@ -86,18 +66,45 @@ public class Savings extends Account {
     }
 
     /**
-     * Updates the loyalty status of the account.
+     * Gets the loyalty status of the account, as the AccountPolicy in effect
+     * decides it for the type of the account.
      * 
      * @returns isLoyal status
      */
     public boolean isLoyal() {
-        if (this instanceof MoneyMarket) {
-            if (this.balance < 2000) {
-                isLoyal = false;
-            } else {
-                isLoyal = true;
-            }
-        }
-        return isLoyal;
+        return AccountPolicy.current().isLoyal(getType().ordinal(), getBalance(), loyalStatus());
+    }
+
+    /**
+     * Gets the loyal customer status the holder was given when opening the
+     * account.
+     *
+     * @return The loyal customer status.
+     */
+    @Override
+    boolean loyalStatus() {
+        return store == null ? isLoyal : store.isLoyal(slot);
+    }
+
+    /**
+     * Turns the account into a view over a slot of the store, copying the
+     * loyalty status into its column.
+     *
+     * @param store The store holding the account.
+     * @param slot  The slot of the account in the store.
+     */
+    @Override
+    void attach(AccountStore store, int slot) {
+        super.attach(store, slot);
+        store.setLoyal(slot, isLoyal);
+    }
+
+    /**
+     * Copies the loyalty status back from the slot and detaches the account.
+     */
+    @Override
+    void detach() {
+        isLoyal = store.isLoyal(slot);
+        super.detach();
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+/**
+ * Binary snapshot of every account of an AccountDatabase, tagged with the
+ * sequence number of the last journal record it includes. A snapshot is an
+ * AccountArchive written to a temporary file and moved into place, so that a
+ * crash never leaves a partial snapshot behind.
+ *
+ * @author Altay Ozkan
+ */
+public final class Snapshot {
+    /**
+     * Snapshot only provides static methods and is not instantiated.
+     */
+    private Snapshot() {
+    }
+
+    /**
+     * Writes a snapshot of accounts.
+     *
+     * @param path     The snapshot file, replaced atomically.
+     * @param accounts The accounts to be written.
+     * @param count    The number of accounts.
+     * @param sequence The sequence of the last journal record included.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static void write(Path path, Iterable<Account> accounts, int count, long sequence) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        AccountArchive.write(temporary, accounts, count, sequence);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot, handing each account to a handler. The snapshot is
+     * verified against its checksum before any account is handed over.
+     *
+     * @param path    The snapshot file.
+     * @param handler Called with each account, detached.
+     * @return The sequence of the last journal record included, or 0 if the
+     *         snapshot file does not exist.
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     snapshot.
+     */
+    public static long read(Path path, Consumer<Account> handler) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        return AccountArchive.read(path, handler);
+    }
+}
@@ -0,0 +1,147 @@
+package banking_gui;
+
+import java.util.Arrays;
+
+/**
+ * A batch of deposits and withdrawals to be posted to an AccountDatabase in
+ * one call. The operations are held in parallel arrays, so that a batch of
+ * millions of postings needs no object per operation.
+ *
+ * @author Altay Ozkan
+ */
+public class TransactionBatch {
+    private Profile[] holders; // holder of the account of each operation
+    private AccountType[] types; // account type of each operation
+    private long[] amounts; // amount of each operation, in cents
+    private boolean[] debits; // true for a withdrawal, false for a deposit
+    private int size; // number of operations in the batch
+
+    /**
+     * Default constructor initializes an empty batch with a default initial
+     * capacity.
+     */
+    public TransactionBatch() {
+        this(Constants.BATCH_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty batch with enough capacity for the expected
+     * number of operations.
+     *
+     * @param expectedSize The expected number of operations.
+     */
+    public TransactionBatch(int expectedSize) {
+        int capacity = Math.max(expectedSize, 1);
+        this.holders = new Profile[capacity];
+        this.types = new AccountType[capacity];
+        this.amounts = new long[capacity];
+        this.debits = new boolean[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a deposit to the batch.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be deposited, in cents.
+     * @return The position of the operation in the batch.
+     */
+    public int deposit(Profile holder, AccountType type, long amount) {
+        return add(holder, type, amount, false);
+    }
+
+    /**
+     * Adds a withdrawal to the batch.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount to be withdrawn, in cents.
+     * @return The position of the operation in the batch.
+     */
+    public int withdraw(Profile holder, AccountType type, long amount) {
+        return add(holder, type, amount, true);
+    }
+
+    /**
+     * Appends an operation, doubling the arrays when they are full.
+     *
+     * @param holder The profile of the account holder.
+     * @param type   The account type.
+     * @param amount The amount of the operation, in cents.
+     * @param debit  true for a withdrawal, false for a deposit.
+     * @return The position of the operation in the batch.
+     */
+    private int add(Profile holder, AccountType type, long amount, boolean debit) {
+        if (size == amounts.length) {
+            int capacity = amounts.length * 2;
+            holders = Arrays.copyOf(holders, capacity);
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            debits = Arrays.copyOf(debits, capacity);
+        }
+        holders[size] = holder;
+        types[size] = type;
+        amounts[size] = amount;
+        debits[size] = debit;
+        return size++;
+    }
+
+    /**
+     * Removes every operation from the batch, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(holders, 0, size, null);
+        Arrays.fill(types, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the number of operations in the batch.
+     *
+     * @return The number of operations.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the account holder of an operation.
+     *
+     * @param i The position of the operation.
+     * @return The profile of the account holder.
+     */
+    public Profile holder(int i) {
+        return holders[i];
+    }
+
+    /**
+     * Gets the account type of an operation.
+     *
+     * @param i The position of the operation.
+     * @return The account type.
+     */
+    public AccountType type(int i) {
+        return types[i];
+    }
+
+    /**
+     * Gets the amount of an operation.
+     *
+     * @param i The position of the operation.
+     * @return The amount, in cents.
+     */
+    public long amount(int i) {
+        return amounts[i];
+    }
+
+    /**
+     * Checks if an operation is a withdrawal.
+     *
+     * @param i The position of the operation.
+     * @return true for a withdrawal, false for a deposit.
+     */
+    public boolean isWithdrawal(int i) {
+        return debits[i];
+    }
+}
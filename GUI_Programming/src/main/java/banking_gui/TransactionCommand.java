@@ -0,0 +1,81 @@
+package banking_gui;
+
+/**
+ * An entry of the TransactionPipeline ring buffer. Entries are allocated
+ * once with the ring and refilled for every command published, so that the
+ * pipeline does not allocate per command.
+ *
+ * @author Altay Ozkan
+ */
+public class TransactionCommand {
+    long sequence; // position of the command in the pipeline order
+    CommandType type; // operation of the command
+    Account account; // account to open, or identifying the account to change
+    Account target; // account receiving a transfer, null otherwise
+    long amount; // amount of a deposit, withdrawal or transfer, in cents
+    int result; // outcome once applied by the writer
+
+    /**
+     * Creates an empty entry, once per ring slot.
+     */
+    TransactionCommand() {
+    }
+
+    /**
+     * Gets the position of the command in the pipeline order.
+     *
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the operation of the command.
+     *
+     * @return The command type.
+     */
+    public CommandType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the account of the command. For an open, this is the account to
+     * be added; otherwise it identifies the account by holder and type.
+     *
+     * @return The account.
+     */
+    public Account getAccount() {
+        return account;
+    }
+
+    /**
+     * Gets the account receiving a transfer.
+     *
+     * @return The target account, identified by holder and type, or null if
+     *         the command is not a transfer.
+     */
+    public Account getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the amount of a deposit, withdrawal or transfer.
+     *
+     * @return The amount, in cents.
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the outcome of the command once the writer has applied it.
+     *
+     * @return TRANSACTION_DONE, INSUFFICIENT_FUNDS, NOT_FOUND,
+     *         DUPLICATE_ACCOUNT for an open whose account already exists, or
+     *         TRANSACTION_FAILED if applying the command threw.
+     */
+    public int getResult() {
+        return result;
+    }
+}
@@ -4,10 +4,9 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Manages user transactions by processing input.
@@ -62,13 +61,15 @@ public class TransactionManagerController {
     private TextField initialBalance;
     @FXML
     private TextField depWitAmount;
-    private AccountDatabase accountDatabase;
+    private AccountRepository accountDatabase;
 
     /**
-     * Initializes the TransactionManagerController.
+     * Initializes the TransactionManagerController. The accounts are kept in
+     * a MappedAccountDatabase if the banking.store system property names its
+     * directory, and in an AccountDatabase otherwise.
      */
     public void initialize() {
-        accountDatabase = new AccountDatabase();
+        accountDatabase = openDatabase(System.getProperty(Constants.STORE_PROPERTY));
         ToggleGroup group1 = new ToggleGroup();
         ToggleGroup group2 = new ToggleGroup();
         ToggleGroup group3 = new ToggleGroup();
@@ -102,6 +103,25 @@ public class TransactionManagerController {
         });
     }
 
+    /**
+     * Opens the account database, falling back to an in-memory database if
+     * the mapped one cannot be opened.
+     *
+     * @param store The directory of a MappedAccountDatabase, or null.
+     * @return The account database.
+     */
+    private AccountRepository openDatabase(String store) {
+        if (store == null) {
+            return new AccountDatabase();
+        }
+        try {
+            return new MappedAccountDatabase(Path.of(store));
+        } catch (IOException e) {
+            outputArea.appendText("Failed to open the account store: " + e.getMessage() + "\n");
+            return new AccountDatabase();
+        }
+    }
+
     /**
      * Opens a new account when Open button is clicked.
      *
@@ -117,7 +137,7 @@ public class TransactionManagerController {
             Profile profile = new Profile(firstName1.getText(), lastName1.getText(), new Date(dob1.getValue().toString()));
             if (!dateCheck(profile.getDob()))
                 return;
-            double balance = Double.parseDouble(initialBalance.getText());
+            long balance = Money.parse(initialBalance.getText());
             if (balance <= 0) {
                 outputArea.appendText("Initial deposit cannot be 0 or negative.\n");
                 return;
@@ -153,15 +173,15 @@ public class TransactionManagerController {
      *
      * @param buffer  Account created in order to add to the database.
      * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
+     * @param balance Balance of new account being added, in cents.
      * @return true if a valid account is created, false otherwise.
      */
-    protected boolean createMM(Account buffer, Profile profile, double balance) {
+    protected boolean createMM(Account buffer, Profile profile, long balance) {
         if (profile.getDob().getAge() < 16) {
             outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
             return false;
         }
-        if (balance >= 2000) {
+        if (balance >= Constants.MIN_BALANCE_LOYAL) {
             if (!accountDatabase.contains(buffer)) {
                 accountDatabase.open(new MoneyMarket(profile, balance, 0));
                 return true;
@@ -181,10 +201,10 @@ public class TransactionManagerController {
      *
      * @param buffer  Account created in order to add to the database.
      * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
+     * @param balance Balance of new account being added, in cents.
      * @return true if a valid account is created, false otherwise.
      */
-    private boolean createCC(Account buffer, Profile profile, double balance) {
+    private boolean createCC(Account buffer, Profile profile, long balance) {
         if (profile.getDob().getAge() < 16) {
             outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
             return false;
@@ -222,10 +242,10 @@ public class TransactionManagerController {
      *
      * @param buffer  Account created in order to add to the database.
      * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
+     * @param balance Balance of new account being added, in cents.
      * @return true if a valid account is created, false otherwise.
      */
-    private boolean createS(Account buffer, Profile profile, double balance) {
+    private boolean createS(Account buffer, Profile profile, long balance) {
         if (profile.getDob().getAge() < 16) {
             outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
             return false;
@@ -249,10 +269,10 @@ public class TransactionManagerController {
      *
      * @param buffer  Account created in order to add to the database.
      * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
+     * @param balance Balance of new account being added, in cents.
      * @return true if a valid account is created, false otherwise.
      */
-    private boolean createC(Account buffer, Profile profile, double balance) {
+    private boolean createC(Account buffer, Profile profile, long balance) {
         if (profile.getDob().getAge() < 16) {
             outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
             return false;
@@ -274,15 +294,11 @@ public class TransactionManagerController {
      * @return true if the date is valid and not in the future, false otherwise.
      */
     protected boolean dateCheck(Date date) {
-        Date todaysDate = new Date();
         if (!date.isValid()) {
             outputArea.appendText("DOB invalid: " + date + " not a valid calendar date!\n");
             return false;
         }
-        if ((date.getYear() > todaysDate.getYear())
-                || (date.getYear() == todaysDate.getYear() && date.getMonth() > todaysDate.getMonth())
-                || (date.getYear() == todaysDate.getYear() && date.getMonth() == todaysDate.getMonth()
-                && date.getDay() >= todaysDate.getDay())) {
+        if (date.compareTo(Date.today()) >= 0) {
             outputArea.appendText("DOB invalid: " + date + " cannot be today or a future day.\n");
             return false;
         }
@@ -377,7 +393,7 @@ public class TransactionManagerController {
             String type;
             Profile profile = new Profile(firstName2.getText(), lastName2.getText(),
                     new Date(dob2.getValue().toString()));
-            double amount = Double.parseDouble(depWitAmount.getText());
+            long amount = Money.parse(depWitAmount.getText());
             if (amount <= 0) {
                 outputArea.appendText("Deposit - amount cannot be 0 or negative.\n");
                 return;
@@ -416,7 +432,7 @@ public class TransactionManagerController {
      * @param balance the balance to be set for the account.
      * @return the newly created account object with the specified balance.
      */
-    private Account createUpdateBalance(String type, Profile profile, double balance) {
+    private Account createUpdateBalance(String type, Profile profile, long balance) {
         switch (type) {
             case "CC":
                 return new CollegeChecking(profile, balance, 0);
@@ -442,7 +458,7 @@ public class TransactionManagerController {
         try {
             String type;
             Profile profile = new Profile(firstName2.getText(), lastName2.getText(), new Date(dob2.getValue().toString()));
-            double amount = Double.parseDouble(depWitAmount.getText());
+            long amount = Money.parse(depWitAmount.getText());
             if (amount <= 0) {
                 outputArea.appendText("Withdraw - amount cannot be 0 or negative.\n");
                 return;
@@ -494,6 +510,7 @@ public class TransactionManagerController {
         fileChooser.setTitle("Open Account Data File");
         fileChooser.getExtensionFilters().addAll(
                 new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+                new FileChooser.ExtensionFilter("Account Archives", "*" + Constants.ARCHIVE_EXTENSION),
                 new FileChooser.ExtensionFilter("All Files", "*.*"));
         File selectedFile = fileChooser.showOpenDialog(null);
         if (selectedFile != null) {
@@ -503,6 +520,29 @@ public class TransactionManagerController {
         }
     }
 
+    /**
+     * Exports all accounts to a binary archive file when Export Accounts button is clicked.
+     *
+     */
+    @FXML
+    protected void onExportAccountsClick() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Accounts");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Account Archives", "*" + Constants.ARCHIVE_EXTENSION));
+        File selectedFile = fileChooser.showSaveDialog(null);
+        if (selectedFile == null) {
+            outputArea.appendText("No file was selected.\n");
+            return;
+        }
+        try {
+            accountDatabase.exportAccounts(selectedFile.toPath());
+            outputArea.appendText("Accounts exported.\n");
+        } catch (IOException e) {
+            outputArea.appendText("Failed to export accounts to the file: " + e.getMessage() + "\n");
+        }
+    }
+
     /**
      * Prints accounts from account database including interest and fees when Print Interest Fee button is clicked.
      *
@@ -513,7 +553,7 @@ public class TransactionManagerController {
     }
 
     /**
-     * Prints accounts from account database with updated interest and fees when Update Accounts button is clicked.
+     * Applies the monthly interest and fees to all accounts and prints them when Update Accounts button is clicked.
      *
      */
     @FXML
@@ -527,124 +567,48 @@ public class TransactionManagerController {
      *
      */
     private void loadAccountsFromFile(File file) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                addAccountToDatabase(line);
+        try {
+            if (AccountArchive.isArchive(file.toPath())) {
+                importAccountsFromArchive(file);
+                return;
             }
-            outputArea.appendText("Accounts loaded.");
         } catch (IOException e) {
             outputArea.appendText("Failed to load accounts from the file: " + e.getMessage() + "\n");
-            e.printStackTrace();
+            return;
         }
-    }
-
-    /**
-     * Formats given account information to be properly processed.
-     * @param accountData the account information to be formatted.
-     *
-     */
-    private void addAccountToDatabase(String accountData) {
+        accountDatabase.ensureCapacity(accountDatabase.size()
+                + (int) (file.length() / Constants.ESTIMATED_RECORD_LENGTH));
+        StringBuilder messages = new StringBuilder();
         try {
-            String[] values = accountData.split(",");
-            if (values.length == 5 || values.length == 6) {
-                loadAccountHelper(values);
-            } else {
-                outputArea.appendText("Invalid account data format: " + accountData + "\n");
-            }
-        } catch (Exception e) {
-            outputArea.appendText("Error processing account data: " + accountData + ". Error: " + e.getMessage() + "\n");
+            AccountLoader.load(file.toPath(), accountDatabase, messages);
+            outputArea.appendText(messages.toString());
+            outputArea.appendText("Accounts loaded.");
+        } catch (IOException e) {
+            outputArea.appendText("Failed to load accounts from the file: " + e.getMessage() + "\n");
+            e.printStackTrace();
         }
     }
 
     /**
-     * Adds loaded and formatted accounts to the database.
-     * @param values information for an account to be opened from the text file.
+     * Opens each account of a binary archive file. The archive was checked on
+     * export, so accounts are only skipped when already in the database.
+     * @param file the archive file with accounts to be opened.
      *
      */
-    private void loadAccountHelper(String[] values){
+    private void importAccountsFromArchive(File file) {
         try {
-            Profile profile = new Profile(values[1], values[2],
-                    new Date(values[3]));
-            if (!dateCheck(profile.getDob())) {
-                return;
-            }
-            double balance = Double.parseDouble(values[4]);
-            if (balance <= 0) {
-                outputArea.appendText("Initial deposit cannot be 0 or negative.\n");
-                return;
-            }
-            String type = values[0];
-            Account buffer = createTemp(type, profile);
-            switch (type) {
-                case "CC" -> createLoadedCC(buffer, profile, balance, Integer.parseInt(values[5]));
-                case "S" -> createLoadedS(buffer, profile, balance, Integer.parseInt(values[5]));
-                case "MM" -> createMM(buffer, profile, balance);
-                default -> createC(buffer, profile, balance);
-            }
-        } catch (java.util.NoSuchElementException e) {
-            outputArea.appendText("Missing data for opening an account.\n");
-        } catch (NumberFormatException e) {
-            outputArea.appendText("Not a valid amount.\n");
-        }
-    }
-
-    /**
-     * Creates a CollegeChecking account to add to the database from a text file.
-     *
-     * @param buffer  Account created in order to add to the database.
-     * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
-     * @param code    Code for the campus of account being added.
-     */
-    private boolean createLoadedCC(Account buffer, Profile profile, double balance, int code) {
-        if (profile.getDob().getAge() < 16) {
-            outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
-            return false;
-        }
-        if (profile.getDob().getAge() >= 24) {
-            outputArea.appendText("DOB invalid: " + profile.getDob() + " over 24.\n");
-            return false;
-        }
-        if (code >= 0 && code <= 2) {
-            if (!accountDatabase.contains(buffer)) {
-                accountDatabase.open(new CollegeChecking(profile, balance, code));
-                return true;
-            } else {
-                outputArea.appendText(profile.getFname() + " " + profile.getLname() + " " + profile.getDob()
-                        + "(CC) is already in the database.\n");
-                return false;
-            }
-        } else {
-            outputArea.appendText("Invalid campus code.\n");
-            return false;
-        }
-    }
-
-    /**
-     * Creates a Savings account to add to the database from a text file.
-     *
-     * @param buffer  Account created in order to add to the database.
-     * @param profile Profile created in new account being added.
-     * @param balance Balance of new account being added.
-     * @param code    Code for the isLoyal status of account being added.
-     */
-    private boolean createLoadedS(Account buffer, Profile profile, double balance, int code) {
-        if (profile.getDob().getAge() < 16) {
-            outputArea.appendText("DOB invalid: " + profile.getDob() + " under 16.\n");
-            return false;
-        }
-        if(code != 0 && code != 1) {
-            outputArea.appendText("Invalid loyalty code.\n");
-            return false;
-        }
-        if (!accountDatabase.contains(buffer)) {
-            accountDatabase.open(new Savings(profile, balance, code));
-            return true;
-        } else {
-            outputArea.appendText(profile.getFname() + " " + profile.getLname() + " " + profile.getDob()
-                    + "(S) is already in the database.\n");
-            return false;
+            AccountArchive.read(file.toPath(), account -> {
+                if (accountDatabase.contains(account)) {
+                    Profile profile = account.getHolder();
+                    outputArea.appendText(profile.getFname() + " " + profile.getLname() + " " + profile.getDob()
+                            + "(" + account.getType().code() + ") is already in the database.\n");
+                } else {
+                    accountDatabase.open(account);
+                }
+            });
+            outputArea.appendText("Accounts loaded.");
+        } catch (IOException e) {
+            outputArea.appendText("Failed to load accounts from the file: " + e.getMessage() + "\n");
         }
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class TransactionManagerMain extends Application {
     @Override
@@ -17,7 +18,11 @@ public class TransactionManagerMain extends Application {
         stage.show();
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String policy = System.getProperty(Constants.POLICY_PROPERTY);
+        if (policy != null) {
+            AccountPolicy.install(AccountPolicy.load(Path.of(policy)));
+        }
         launch(args);
     }
 }
\ No newline at end of file
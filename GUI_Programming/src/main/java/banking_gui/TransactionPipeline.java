@@ -0,0 +1,404 @@
+package banking_gui;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sequences the commands that change an AccountRepository through a
+ * preallocated ring buffer. Producers on any thread claim the next sequence
+ * number and publish a command into its ring entry. A single writer thread
+ * applies the commands to the database in sequence order, so the database
+ * is only ever changed by one thread. Listeners then read the same
+ * sequence, each on its own thread, behind the writer.
+ * A producer never overtakes the slowest listener by more than the size of
+ * the ring, and waits by spinning, then yielding, then parking briefly.
+ * A command that throws is reported as failed, and the writer moves on to
+ * the next one; a listener that throws moves on the same way.
+ *
+ * @author Altay Ozkan
+ */
+public class TransactionPipeline {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final AccountRepository database; // database changed by the writer
+    private final TransactionCommand[] ring; // preallocated command entries
+    private final long[] published; // sequence last published in each entry
+    private final int mask; // ring size minus one, to map a sequence to an entry
+    private final AtomicLong claimed; // last sequence claimed by a producer
+    private final AtomicInteger publishing; // producers between their running check and their publish
+    private final AtomicLong applied; // last sequence applied by the writer
+    private final PipelineListener[] listeners; // consumers behind the writer
+    private final AtomicLong[] consumed; // last sequence read by each listener
+    private final Thread[] threads; // the writer, then one thread per listener
+    private volatile boolean running; // false once the pipeline is stopped
+    private volatile boolean drained; // true once the writer has stopped
+    private Path snapshotPath; // snapshot file written by the writer, null if none
+    private long snapshotInterval; // commands applied between two snapshots
+    private volatile IOException snapshotFailure; // last snapshot error, null if none
+    private volatile RuntimeException failure; // last error of a command or batch, null if none
+
+    /**
+     * Creates a pipeline in front of a database with the default ring size.
+     *
+     * @param database  The database to be changed by the writer.
+     * @param listeners The consumers of the applied commands.
+     */
+    public TransactionPipeline(AccountRepository database, PipelineListener... listeners) {
+        this(database, Constants.PIPELINE_RING_SIZE, listeners);
+    }
+
+    /**
+     * Creates a pipeline in front of a database.
+     *
+     * @param database  The database to be changed by the writer.
+     * @param ringSize  The number of ring entries, a power of two.
+     * @param listeners The consumers of the applied commands.
+     */
+    public TransactionPipeline(AccountRepository database, int ringSize, PipelineListener... listeners) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        this.database = database;
+        this.ring = new TransactionCommand[ringSize];
+        this.published = new long[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new TransactionCommand();
+            published[i] = Constants.NOT_FOUND;
+        }
+        this.mask = ringSize - 1;
+        this.claimed = new AtomicLong(Constants.NOT_FOUND);
+        this.publishing = new AtomicInteger();
+        this.applied = new AtomicLong(Constants.NOT_FOUND);
+        this.listeners = listeners.clone();
+        this.consumed = new AtomicLong[listeners.length];
+        this.threads = new Thread[listeners.length + 1];
+        threads[0] = new Thread(this::write, "pipeline-writer");
+        for (int i = 0; i < listeners.length; i++) {
+            consumed[i] = new AtomicLong(Constants.NOT_FOUND);
+            int listener = i;
+            threads[i + 1] = new Thread(() -> consume(listener), "pipeline-listener-" + i);
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+        }
+    }
+
+    /**
+     * Makes the writer take a snapshot of the database periodically. Since
+     * the writer is the only thread changing the database, each snapshot is
+     * consistent with the journal. Must be called before start.
+     *
+     * @param path     The snapshot file, replaced by each snapshot.
+     * @param interval The number of commands applied between two snapshots.
+     */
+    public void setSnapshots(Path path, long interval) {
+        this.snapshotPath = path;
+        this.snapshotInterval = interval;
+    }
+
+    /**
+     * Gets the error of the last snapshot that failed. The writer keeps
+     * applying commands and retries at the next interval.
+     *
+     * @return The error, or null if no snapshot failed.
+     */
+    public IOException getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    /**
+     * Gets the last error thrown while applying a command, ending a batch or
+     * handing a command to a listener. A command that threw while applied
+     * has the TRANSACTION_FAILED result.
+     *
+     * @return The error, or null if nothing failed.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Starts the writer and listener threads.
+     */
+    public void start() {
+        running = true;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops accepting commands and waits until every published command has
+     * been applied and read by every listener. A producer that got past the
+     * running check before the stop still has its command applied.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Publishes the opening of an account.
+     *
+     * @param account The account to be added.
+     * @return The sequence number of the command.
+     */
+    public long open(Account account) {
+        return publish(CommandType.OPEN, account, null, 0);
+    }
+
+    /**
+     * Publishes the closing of an account.
+     *
+     * @param account The account to be removed, found by holder and type.
+     * @return The sequence number of the command.
+     */
+    public long close(Account account) {
+        return publish(CommandType.CLOSE, account, null, 0);
+    }
+
+    /**
+     * Publishes a deposit.
+     *
+     * @param account The account to deposit into, found by holder and type.
+     * @param amount  The amount to be deposited, in cents.
+     * @return The sequence number of the command.
+     */
+    public long deposit(Account account, long amount) {
+        return publish(CommandType.DEPOSIT, account, null, amount);
+    }
+
+    /**
+     * Publishes a withdrawal.
+     *
+     * @param account The account to withdraw from, found by holder and type.
+     * @param amount  The amount to be withdrawn, in cents.
+     * @return The sequence number of the command.
+     */
+    public long withdraw(Account account, long amount) {
+        return publish(CommandType.WITHDRAW, account, null, amount);
+    }
+
+    /**
+     * Publishes a transfer between two accounts.
+     *
+     * @param from   The account to withdraw from, found by holder and type.
+     * @param to     The account to deposit into, found by holder and type.
+     * @param amount The amount to be moved, in cents.
+     * @return The sequence number of the command.
+     */
+    public long transfer(Account from, Account to, long amount) {
+        return publish(CommandType.TRANSFER, from, to, amount);
+    }
+
+    /**
+     * Publishes a month-end close, applied by the writer between the
+     * commands before and after it.
+     *
+     * @return The sequence number of the command.
+     */
+    public long closeMonth() {
+        return publish(CommandType.MONTH_END, null, null, 0);
+    }
+
+    /**
+     * Waits until the writer has applied a command.
+     *
+     * @param sequence The sequence number of the command.
+     */
+    public void awaitApplied(long sequence) {
+        int idle = 0;
+        while (applied.get() < sequence) {
+            idle = idle(idle);
+        }
+    }
+
+    /**
+     * Claims the next sequence number, waits for its ring entry to be free
+     * and publishes a command into it.
+     *
+     * @param type    The operation of the command.
+     * @param account The account of the command.
+     * @param target  The account receiving a transfer, null otherwise.
+     * @param amount  The amount of the command, in cents.
+     * @return The sequence number of the command.
+     * @throws IllegalStateException if the pipeline is not running.
+     */
+    private long publish(CommandType type, Account account, Account target, long amount) {
+        publishing.incrementAndGet(); // keeps the writer running until the command is published
+        try {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is not running");
+            }
+            long sequence = claimed.incrementAndGet();
+            int idle = 0;
+            while (sequence - ring.length > gate()) {
+                idle = idle(idle);
+            }
+            int entry = (int) sequence & mask;
+            TransactionCommand command = ring[entry];
+            command.sequence = sequence;
+            command.type = type;
+            command.account = account;
+            command.target = target;
+            command.amount = amount;
+            command.result = Constants.NOT_FOUND;
+            LONGS.setRelease(published, entry, sequence);
+            return sequence;
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the last sequence that every consumer has finished with, below
+     * which ring entries may be reused.
+     *
+     * @return The sequence of the slowest consumer.
+     */
+    private long gate() {
+        long gate = applied.get();
+        for (AtomicLong sequence : consumed) {
+            gate = Math.min(gate, sequence.get());
+        }
+        return gate;
+    }
+
+    /**
+     * Runs the writer: applies every published command in sequence order,
+     * advancing the applied sequence once per run of available commands.
+     * Once stopped, it only exits when no producer can still claim or
+     * publish a command.
+     */
+    private void write() {
+        long next = applied.get() + 1;
+        long snapshot = next;
+        int idle = 0;
+        while (true) {
+            long last = next - 1;
+            while ((long) LONGS.getAcquire(published, (int) (last + 1) & mask) == last + 1) {
+                apply(ring[(int) (last + 1) & mask]);
+                last++;
+            }
+            if (last >= next) {
+                try {
+                    database.endBatch();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                if (snapshotPath != null && last + 1 - snapshot >= snapshotInterval) {
+                    try {
+                        database.writeSnapshot(snapshotPath);
+                    } catch (IOException e) {
+                        snapshotFailure = e;
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                    snapshot = last + 1;
+                }
+                applied.set(last);
+                next = last + 1;
+                idle = 0;
+            } else if (!running && publishing.get() == 0 && next > claimed.get()) {
+                break;
+            } else {
+                idle = idle(idle);
+            }
+        }
+        drained = true;
+    }
+
+    /**
+     * Applies one command to the database and records its outcome, or
+     * TRANSACTION_FAILED if it threw.
+     *
+     * @param command The command to be applied.
+     */
+    private void apply(TransactionCommand command) {
+        try {
+            command.result = execute(command);
+        } catch (RuntimeException e) {
+            failure = e;
+            command.result = Constants.TRANSACTION_FAILED;
+        }
+    }
+
+    /**
+     * Executes one command against the database.
+     *
+     * @param command The command to be executed.
+     * @return The outcome of the command.
+     */
+    private int execute(TransactionCommand command) {
+        Account account = command.account;
+        return switch (command.type) {
+            case OPEN -> database.open(account) ? Constants.TRANSACTION_DONE : Constants.DUPLICATE_ACCOUNT;
+            case CLOSE -> database.close(account) ? Constants.TRANSACTION_DONE : Constants.NOT_FOUND;
+            case DEPOSIT -> database.deposit(account.getHolder(), account.getType(), command.amount);
+            case WITHDRAW -> database.withdraw(account.getHolder(), account.getType(), command.amount);
+            case TRANSFER -> database.transfer(account, command.target, command.amount);
+            case MONTH_END -> {
+                database.closeMonth();
+                yield Constants.TRANSACTION_DONE;
+            }
+        };
+    }
+
+    /**
+     * Runs a listener: hands it every applied command in sequence order. A
+     * command the listener throws on is recorded as the failure and skipped,
+     * so that the listener keeps up and never holds back the producers.
+     *
+     * @param listener The position of the listener.
+     */
+    private void consume(int listener) {
+        AtomicLong sequence = consumed[listener];
+        long next = sequence.get() + 1;
+        int idle = 0;
+        while (true) {
+            long available = applied.get();
+            if (available >= next) {
+                for (; next <= available; next++) {
+                    try {
+                        listeners[listener].onCommand(ring[(int) next & mask]);
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+                sequence.set(available);
+                idle = 0;
+            } else if (drained && next > applied.get()) {
+                break;
+            } else {
+                idle = idle(idle);
+            }
+        }
+    }
+
+    /**
+     * Waits a little while nothing can be done: spins first, then yields,
+     * then parks for a short time.
+     *
+     * @param idle The number of times the caller has waited so far.
+     * @return The updated number of times waited.
+     */
+    private static int idle(int idle) {
+        if (idle < Constants.PIPELINE_SPINS) {
+            Thread.onSpinWait();
+        } else if (idle < Constants.PIPELINE_SPINS * 2) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Constants.PIPELINE_PARK_NANOS);
+        }
+        return Math.min(idle + 1, Constants.PIPELINE_SPINS * 2);
+    }
+}
@@ -0,0 +1,147 @@
+package banking_gui;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD version of MonthEndKernel, built on the jdk.incubator.vector API.
+ * Slots are taken in blocks of eight, one byte vector of types, and each
+ * block is computed as long vectors of the preferred size: the row of the
+ * AccountPolicy of each lane is gathered with masks, one per account type,
+ * and the rules are applied with masks instead of branches. Vectors have no fast integer division, so the
+ * quotient of the interest is estimated in floating point, corrected to the
+ * exact floor with its remainder, then rounded half even. A lane whose
+ * product could overflow sends its part of the block to the scalar loop,
+ * which reports the overflow like Money.monthlyInterest.
+ * This is the only class referring to the incubator module, so it is only
+ * loaded once MonthEndKernel has found the module.
+ *
+ * @author Altay Ozkan
+ */
+final class VectorMonthEnd {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.length() * Integer.SIZE));
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final int BLOCK = BYTES.length(); // slots per block, one byte vector of types
+    private static final long DIVISOR = (long) Constants.RATE_SCALE * Constants.MONTHS_COUNT;
+    private static final double RECIPROCAL = 1.0 / DIVISOR; // estimates a quotient off by at most one
+
+    /**
+     * VectorMonthEnd only provides static methods and is not instantiated.
+     */
+    private VectorMonthEnd() {
+    }
+
+    /**
+     * Checks if the hardware holds several longs per vector and a block
+     * splits evenly into long vectors.
+     *
+     * @return true if the kernel pays off on this machine.
+     */
+    static boolean isSupported() {
+        return LONGS.length() > 1 && BLOCK % LONGS.length() == 0;
+    }
+
+    /**
+     * Computes the monthly interest and fee of the whole blocks of a run of
+     * slots of a segment.
+     *
+     * @param policy      The interest and fee rules.
+     * @param accounts    The account views of the segment, null for a closed slot.
+     * @param balances    The balances of the segment, in cents.
+     * @param types       The AccountType ordinals of the segment.
+     * @param loyalty     The loyal customer bits of the segment.
+     * @param withdrawals The withdrawal counts of the segment.
+     * @param from        The offset of the first slot.
+     * @param to          The end of the run, exclusive.
+     * @param interest    Receives the interest of each slot, in cents.
+     * @param fees        Receives the fee of each slot, in cents.
+     * @return The offset of the first slot left to the scalar loop.
+     * @throws ArithmeticException if an interest overflows a long.
+     */
+    static int compute(AccountPolicy policy, Account[] accounts, long[] balances, byte[] types,
+                       long[] loyalty, int[] withdrawals, int from, int to, long[] interest, long[] fees) {
+        int start = (from + BLOCK - 1) & -BLOCK;
+        if (start + BLOCK > to) {
+            return from;
+        }
+        MonthEndKernel.computeScalar(policy, accounts, balances, types, loyalty, withdrawals,
+                from, start, interest, fees);
+        int typeCount = AccountType.values().length;
+        long maxBalance = Long.MAX_VALUE / Math.max(policy.maxRate(), 1);
+        int lanes = LONGS.length();
+        int i = start;
+        for (; i + BLOCK <= to; i += BLOCK) {
+            ByteVector blockTypes = ByteVector.fromArray(BYTES, types, i);
+            long loyalBits = loyalty[i >>> 6] >>> (i & 63);
+            for (int part = 0; part < BLOCK / lanes; part++) {
+                int j = i + part * lanes;
+                LongVector balance = LongVector.fromArray(LONGS, balances, j);
+                VectorMask<Long> open = balance.compare(VectorOperators.NE, Constants.CLOSED_BALANCE);
+                if (balance.compare(VectorOperators.GT, maxBalance)
+                        .or(balance.compare(VectorOperators.LT, -maxBalance)).and(open).anyTrue()) {
+                    MonthEndKernel.computeScalar(policy, accounts, balances, types, loyalty, withdrawals,
+                            j, j + lanes, interest, fees);
+                    continue;
+                }
+                LongVector type = (LongVector) blockTypes.convertShape(VectorOperators.B2L, LONGS, part);
+                LongVector count = (LongVector) IntVector.fromArray(INTS, withdrawals, j)
+                        .convertShape(VectorOperators.I2L, LONGS, 0);
+                VectorMask<Long> status = VectorMask.fromLong(LONGS, loyalBits >>> (part * lanes));
+                LongVector rate = LongVector.zero(LONGS);
+                LongVector bonus = LongVector.zero(LONGS);
+                LongVector loyalBalance = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+                LongVector noFeeBalance = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+                LongVector fee = LongVector.zero(LONGS);
+                LongVector withdrawLimit = LongVector.broadcast(LONGS, Integer.MAX_VALUE);
+                LongVector withdrawFee = LongVector.zero(LONGS);
+                VectorMask<Long> byStatus = LONGS.maskAll(false);
+                for (int t = 0; t < typeCount; t++) {
+                    VectorMask<Long> row = type.compare(VectorOperators.EQ, t);
+                    rate = rate.blend(policy.rate(t), row);
+                    bonus = bonus.blend(policy.loyaltyBonus(t), row);
+                    loyalBalance = loyalBalance.blend(policy.loyalBalance(t), row);
+                    noFeeBalance = noFeeBalance.blend(policy.noFeeBalance(t), row);
+                    fee = fee.blend(policy.fee(t), row);
+                    withdrawLimit = withdrawLimit.blend(policy.withdrawLimit(t), row);
+                    withdrawFee = withdrawFee.blend(policy.withdrawFee(t), row);
+                    if (policy.loyaltyByStatus(t)) {
+                        byStatus = byStatus.or(row);
+                    }
+                }
+
+                VectorMask<Long> loyal = status.and(byStatus)
+                        .or(balance.compare(VectorOperators.GE, loyalBalance));
+                LongVector product = balance.mul(rate.add(bonus, loyal));
+                DoubleVector estimate = (DoubleVector) product.convert(VectorOperators.L2D, 0);
+                LongVector quotient = (LongVector) estimate.mul(RECIPROCAL).convert(VectorOperators.D2L, 0);
+                LongVector remainder = product.sub(quotient.mul(DIVISOR));
+                VectorMask<Long> below = remainder.compare(VectorOperators.LT, 0);
+                quotient = quotient.sub(1, below);
+                remainder = remainder.add(DIVISOR, below);
+                VectorMask<Long> above = remainder.compare(VectorOperators.GE, DIVISOR);
+                quotient = quotient.add(1, above);
+                remainder = remainder.sub(DIVISOR, above);
+                LongVector twice = remainder.add(remainder);
+                VectorMask<Long> up = twice.compare(VectorOperators.GT, DIVISOR)
+                        .or(twice.compare(VectorOperators.EQ, DIVISOR)
+                                .and(quotient.and(1L).compare(VectorOperators.NE, 0)));
+                quotient.add(1, up).blend(0, open.not()).intoArray(interest, j);
+
+                LongVector.zero(LONGS)
+                        .blend(fee, balance.compare(VectorOperators.LT, noFeeBalance))
+                        .add(withdrawFee, count.compare(VectorOperators.GT, withdrawLimit))
+                        .blend(0, open.not())
+                        .intoArray(fees, j);
+            }
+        }
+        return i;
+    }
+}
@@ -1,6 +1,7 @@
 module com.example.gui_programming {
     requires javafx.controls;
     requires javafx.fxml;
+    requires static jdk.incubator.vector;
 
 
     opens banking_gui to javafx.fxml;
@@ -0,0 +1,180 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that AccountDatabase and MappedAccountDatabase honour the same
+ * AccountRepository contract, and that the mapped store persists its
+ * accounts across a reopen.
+ *
+ * @author Altay Ozkan
+ */
+class AccountRepositoryTest {
+    private static final Profile JOHN = new Profile("John", "Doe", new Date("1/2/1990"));
+    private static final Profile JANE = new Profile("Jane", "Doe", new Date("3/4/1985"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void familyRulesAndPostings() throws IOException {
+        for (AccountRepository database : backends()) {
+            String name = database.getClass().getSimpleName();
+            Account checking = new Checking(JOHN, 1000);
+            assertTrue(database.open(checking), name);
+            assertFalse(database.open(new Checking(JOHN, 500)), name);
+            assertFalse(database.open(new CollegeChecking(JOHN, 500, 0)), name);
+            assertTrue(database.open(new Savings(JOHN, 2000, 1)), name);
+            assertTrue(database.open(new MoneyMarket(JANE, 300_000, 0)), name);
+            assertEquals(3, database.size(), name);
+            assertTrue(database.contains(new CollegeChecking(JOHN, 0, 0)), name);
+            assertFalse(database.contains(new Checking(JANE, 0)), name);
+
+            assertEquals(Constants.TRANSACTION_DONE, database.deposit(JOHN, AccountType.CHECKING, 250), name);
+            assertEquals(Constants.INSUFFICIENT_FUNDS, database.withdraw(JOHN, AccountType.CHECKING, 5000), name);
+            assertEquals(Constants.TRANSACTION_DONE,
+                    database.withdraw(JANE, AccountType.MONEY_MARKET, 1000), name);
+            assertEquals(Constants.NOT_FOUND, database.deposit(JANE, AccountType.SAVINGS, 100), name);
+            assertEquals(Constants.TRANSACTION_DONE,
+                    database.transfer(checking, new Savings(JOHN, 0, 0), 250), name);
+            assertEquals(Constants.INSUFFICIENT_FUNDS,
+                    database.transfer(checking, new Savings(JOHN, 0, 0), 5000), name);
+            assertEquals(Constants.NOT_FOUND,
+                    database.transfer(checking, new Savings(JANE, 0, 0), 100), name);
+
+            assertEquals(1000, database.getAccount(checking).getBalance(), name);
+            assertEquals(2250, database.getAccount(new Savings(JOHN, 0, 0)).getBalance(), name);
+            MoneyMarket moneyMarket = (MoneyMarket) database.getAccount(new MoneyMarket(JANE, 0, 0));
+            assertEquals(299_000, moneyMarket.getBalance(), name);
+            assertEquals(1, moneyMarket.getWithdrawals(), name);
+            assertNull(database.getAccount(new CollegeChecking(JOHN, 0, 0)), name);
+
+            assertTrue(database.close(checking), name);
+            assertFalse(database.close(checking), name);
+            assertEquals(Constants.NOT_FOUND, database.deposit(JOHN, AccountType.CHECKING, 100), name);
+            assertTrue(database.open(new CollegeChecking(JOHN, 100, 2)), name);
+            assertEquals(3, database.size(), name);
+        }
+    }
+
+    @Test
+    void transferCountsOnlyMovedMoney() throws IOException {
+        for (AccountRepository database : backends()) {
+            String name = database.getClass().getSimpleName();
+            MoneyMarket source = new MoneyMarket(JANE, 250_000, 1);
+            Account target = new Savings(JANE, 0, 0);
+            database.open(source);
+            database.open(target);
+            assertEquals(Constants.NOT_FOUND, database.transfer(source, new Checking(JANE, 0), 1000), name);
+            assertEquals(Constants.INSUFFICIENT_FUNDS, database.transfer(source, target, 300_000), name);
+            assertEquals(Constants.TRANSACTION_DONE, database.transfer(source, target, 1000), name);
+
+            MoneyMarket found = (MoneyMarket) database.getAccount(source);
+            assertEquals(249_000, found.getBalance(), name);
+            assertEquals(1, found.getWithdrawals(), name);
+            assertEquals(1000, database.getAccount(target).getBalance(), name);
+        }
+    }
+
+    @Test
+    void closeMonthMatches() throws IOException {
+        List<AccountRepository> databases = backends();
+        List<MonthEndTotals> totals = new ArrayList<>();
+        for (AccountRepository database : databases) {
+            for (int i = 0; i < 40; i++) {
+                Profile holder = new Profile("First" + i, "Last" + i, new Date("5/6/1970"));
+                long balance = 37_000L * i;
+                database.open(switch (i % 4) {
+                    case 0 -> new Checking(holder, balance);
+                    case 1 -> new CollegeChecking(holder, balance, i % 3);
+                    case 2 -> new Savings(holder, balance, i % 2);
+                    default -> new MoneyMarket(holder, balance + 200_000, i % 2);
+                });
+                if (i % 4 == 3) {
+                    for (int k = 0; k < i % 6; k++) {
+                        database.withdraw(holder, AccountType.MONEY_MARKET, 100);
+                    }
+                }
+            }
+            totals.add(database.closeMonth());
+        }
+        for (AccountType type : AccountType.values()) {
+            assertEquals(totals.get(0).getAccounts(type), totals.get(1).getAccounts(type));
+            assertEquals(totals.get(0).getInterest(type), totals.get(1).getInterest(type));
+            assertEquals(totals.get(0).getFees(type), totals.get(1).getFees(type));
+            assertEquals(totals.get(0).getBalance(type), totals.get(1).getBalance(type));
+        }
+        assertEquals(balances(databases.get(0)), balances(databases.get(1)));
+    }
+
+    @Test
+    void mappedStoreReopens() throws IOException {
+        Path store = directory.resolve("store");
+        Profile accented = new Profile("Zoë", "Ünal", new Date("7/8/1999"));
+        try (MappedAccountDatabase database = new MappedAccountDatabase(store)) {
+            database.open(new Savings(JOHN, 5000, 1));
+            database.open(new CollegeChecking(accented, 700, 1));
+            database.deposit(JOHN, AccountType.SAVINGS, 500);
+        }
+        try (MappedAccountDatabase database = new MappedAccountDatabase(store)) {
+            assertEquals(2, database.size());
+            Profile shouting = new Profile("JOHN", "doe", new Date("1/2/1990"));
+            assertEquals(5500, database.getAccount(new Savings(shouting, 0, 0)).getBalance());
+            Account college = database.getAccount(new CollegeChecking(new Profile("ZOË", "ünal",
+                    new Date("7/8/1999")), 0, 0));
+            assertNotNull(college);
+            assertEquals(Campus.NEWARK, ((CollegeChecking) college).getCampus());
+            assertNull(database.getAccount(new Savings(new Profile("Johnny", "Doe", new Date("1/2/1990")), 0, 0)));
+        }
+    }
+
+    @Test
+    void pipelineRunsOnMappedStore() throws IOException, InterruptedException {
+        try (MappedAccountDatabase database = new MappedAccountDatabase(directory.resolve("store"))) {
+            TransactionPipeline pipeline = new TransactionPipeline(database, 8);
+            pipeline.start();
+            Account account = new Checking(JANE, 100);
+            pipeline.open(account);
+            pipeline.deposit(account, 400);
+            long last = pipeline.withdraw(account, 200);
+            pipeline.awaitApplied(last);
+            pipeline.stop();
+            assertEquals(300, database.getAccount(account).getBalance());
+        }
+    }
+
+    /**
+     * Creates an empty database of each backend.
+     *
+     * @return An AccountDatabase and a MappedAccountDatabase.
+     * @throws IOException if the mapped files cannot be created.
+     */
+    private List<AccountRepository> backends() throws IOException {
+        return List.of(new AccountDatabase(0, true), new MappedAccountDatabase(directory.resolve("mapped")));
+    }
+
+    /**
+     * Lists the balances of a database in report order.
+     *
+     * @param database The database.
+     * @return The balances, in cents.
+     */
+    private static List<Long> balances(AccountRepository database) {
+        List<Long> balances = new ArrayList<>();
+        for (Account account : database.sorted()) {
+            balances.add(account.getBalance());
+        }
+        return balances;
+    }
+}
@@ -0,0 +1,70 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that compacting an AccountStore keeps the balances of hot accounts
+ * apart from the accounts later stored in the slots it frees, and that the
+ * balance index follows the deposits held by a hot account.
+ *
+ * @author Altay Ozkan
+ */
+class AccountStoreTest {
+
+    @Test
+    void compactionDoesNotShareHotCells() {
+        AccountStore store = new AccountStore(0, true, new Portfolio(), new BalanceIndex());
+        Account first = new Checking(new Profile("Ann", "Lee", new Date("1/2/1990")), 100);
+        Account second = new Savings(new Profile("Bob", "Lee", new Date("1/2/1990")), 200, 0);
+        Account hot = new CollegeChecking(new Profile("Cal", "Lee", new Date("1/2/1990")), 300, 1);
+        store.allocate(first);
+        store.allocate(second);
+        int slot = store.allocate(hot);
+        store.promote(slot);
+        assertTrue(store.deposit(slot, 50));
+        assertTrue(store.isHot(slot));
+
+        store.release(first.slot);
+        store.compact();
+        assertEquals(1, hot.slot);
+        Account reopened = new Checking(new Profile("Dee", "Lee", new Date("1/2/1990")), 400);
+        int freed = store.allocate(reopened);
+        assertEquals(slot, freed);
+        assertFalse(store.isHot(freed));
+        assertEquals(Constants.NOT_FOUND, store.campus(freed));
+
+        assertEquals(350, hot.getBalance());
+        assertEquals(400, reopened.getBalance());
+        assertTrue(store.deposit(freed, 25));
+        assertTrue(store.deposit(hot.slot, 5));
+        assertEquals(355, hot.getBalance());
+        assertEquals(425, reopened.getBalance());
+        assertEquals(200, second.getBalance());
+    }
+
+    @Test
+    void hotDepositsMoveTheBalanceIndex() {
+        BalanceIndex index = new BalanceIndex();
+        AccountStore store = new AccountStore(0, true, new Portfolio(), index);
+        long noFee = AccountPolicy.current().noFeeBalance(AccountType.CHECKING.ordinal());
+        Account hot = new Checking(new Profile("Eve", "Lee", new Date("1/2/1990")), noFee - 100);
+        Account cold = new Checking(new Profile("Fay", "Lee", new Date("1/2/1990")), noFee - 100);
+        int slot = store.allocate(hot);
+        store.allocate(cold);
+        store.promote(slot);
+        assertEquals(List.of(hot, cold), index.range(AccountType.CHECKING, Long.MIN_VALUE, noFee));
+
+        assertTrue(store.deposit(slot, 200));
+        assertTrue(store.isHot(slot));
+        assertEquals(List.of(cold), index.range(AccountType.CHECKING, Long.MIN_VALUE, noFee));
+        assertEquals(List.of(hot), index.range(AccountType.CHECKING, noFee, Long.MAX_VALUE));
+
+        store.fold(slot);
+        assertEquals(List.of(hot), index.range(AccountType.CHECKING, noFee + 100, noFee + 101));
+    }
+}
@@ -0,0 +1,221 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a Journal whose write or force fails never reports the records
+ * it could not write as durable.
+ *
+ * @author Altay Ozkan
+ */
+class JournalTest {
+    private static final Profile HOLDER = new Profile("John", "Doe", new Date("1/2/1990"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failedWriteFailsTheJournal() throws IOException {
+        Path path = directory.resolve("journal");
+        FailingChannel channel = new FailingChannel(path);
+        Journal journal = new Journal(channel, DurabilityPolicy.PER_BATCH);
+        for (int i = 0; i < 3; i++) {
+            journal.appendPosting(CommandType.DEPOSIT, HOLDER, AccountType.CHECKING, 100);
+        }
+        journal.endBatch();
+        journal.appendPosting(CommandType.DEPOSIT, HOLDER, AccountType.CHECKING, 200);
+        channel.failWrites = true;
+        assertThrows(UncheckedIOException.class, journal::endBatch);
+
+        channel.failWrites = false;
+        assertThrows(UncheckedIOException.class, journal::sync);
+        assertThrows(UncheckedIOException.class,
+                () -> journal.appendPosting(CommandType.WITHDRAW, HOLDER, AccountType.CHECKING, 50));
+        assertThrows(IOException.class, journal::close);
+
+        assertEquals(List.of(1L, 2L, 3L), sequences(path));
+    }
+
+    @Test
+    void failedForceFailsTheJournal() throws IOException {
+        Path path = directory.resolve("journal");
+        FailingChannel channel = new FailingChannel(path);
+        Journal journal = new Journal(channel, DurabilityPolicy.PER_OPERATION);
+        journal.commit(journal.appendPosting(CommandType.DEPOSIT, HOLDER, AccountType.SAVINGS, 100));
+        channel.failForces = true;
+        long sequence = journal.appendPosting(CommandType.DEPOSIT, HOLDER, AccountType.SAVINGS, 200);
+        assertThrows(UncheckedIOException.class, () -> journal.commit(sequence));
+
+        channel.failForces = false;
+        assertThrows(UncheckedIOException.class, journal::sync);
+        assertThrows(IOException.class, journal::close);
+    }
+
+    @Test
+    void journalReopensAfterFailure() throws IOException {
+        Path path = directory.resolve("journal");
+        FailingChannel channel = new FailingChannel(path);
+        Journal journal = new Journal(channel, DurabilityPolicy.PER_BATCH);
+        journal.appendMonthEnd();
+        journal.endBatch();
+        journal.appendMonthEnd();
+        channel.failWrites = true;
+        assertThrows(UncheckedIOException.class, journal::endBatch);
+        assertThrows(IOException.class, journal::close);
+
+        try (Journal reopened = new Journal(path, DurabilityPolicy.PER_BATCH)) {
+            assertEquals(1, reopened.lastSequence());
+            reopened.appendMonthEnd();
+        }
+        assertEquals(List.of(1L, 2L), sequences(path));
+    }
+
+    /**
+     * Reads the sequence numbers of the intact records of a journal file.
+     *
+     * @param path The journal file.
+     * @return The sequence numbers, in order.
+     * @throws IOException if the file cannot be read.
+     */
+    private static List<Long> sequences(Path path) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        Journal.read(path, record -> sequences.add(record.getLong(0)));
+        return sequences;
+    }
+
+    /**
+     * A file channel that fails its writes or forces on demand, as a full
+     * or failing disk would.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel file; // the real file
+        volatile boolean failWrites; // true to fail every write
+        volatile boolean failForces; // true to fail every force
+
+        /**
+         * Opens a file for reading and writing.
+         *
+         * @param path The file.
+         * @throws IOException if the file cannot be opened.
+         */
+        FailingChannel(Path path) throws IOException {
+            this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (failWrites) {
+                throw new IOException("No space left on device");
+            }
+            return file.write(source);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForces) {
+                throw new IOException("Input/output error");
+            }
+            file.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            return file.read(destination);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+            return file.read(destinations, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            if (failWrites) {
+                throw new IOException("No space left on device");
+            }
+            return file.write(sources, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return file.transferFrom(source, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer destination, long position) throws IOException {
+            return file.read(destination, position);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            if (failWrites) {
+                throw new IOException("No space left on device");
+            }
+            return file.write(source, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+}
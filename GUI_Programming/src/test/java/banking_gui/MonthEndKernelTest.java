@@ -0,0 +1,313 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that VectorMonthEnd, the scalar loop of MonthEndKernel and the
+ * monthlyInterest() and monthlyFee() of the accounts agree on every account
+ * type, around every balance threshold and withdrawal limit, on negative
+ * balances, on exact half-cent ties, on closed slots, on runs that do not
+ * start or end on a block, and on balances whose interest could overflow.
+ *
+ * @author Altay Ozkan
+ */
+class MonthEndKernelTest {
+    private static final int SLOTS = Constants.SEGMENT_SIZE;
+    private static final int CLOSED_EVERY = 7; // one slot in this many is closed
+    private static final long DIVISOR = (long) Constants.RATE_SCALE * Constants.MONTHS_COUNT;
+    private static final long TIE_SEARCH = 10_000_000; // largest balance searched for a tie, in cents
+    private static final long NOT_COMPUTED = 0x5EED; // marks the amounts left untouched
+
+    private final AccountPolicy policy = AccountPolicy.defaults();
+    private Account[] accounts; // detached account of each slot, null if closed
+    private Account[] views; // the accounts column of the segment
+    private long[] balances;
+    private byte[] types;
+    private long[] loyalty;
+    private int[] withdrawals;
+
+    /**
+     * One combination of the state an account can be in.
+     */
+    private record Case(AccountType type, long balance, boolean loyal, int withdrawals) {
+    }
+
+    @BeforeEach
+    void fillSegment() {
+        List<Case> cases = cases();
+        assertTrue(cases.size() <= SLOTS - SLOTS / CLOSED_EVERY, "every case must fit in the segment");
+        accounts = new Account[SLOTS];
+        views = new Account[SLOTS];
+        balances = new long[SLOTS];
+        types = new byte[SLOTS];
+        loyalty = new long[SLOTS / Long.SIZE];
+        withdrawals = new int[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            if (i % CLOSED_EVERY == CLOSED_EVERY - 1) {
+                balances[i] = Constants.CLOSED_BALANCE;
+                withdrawals[i] = Constants.CLOSED_WITHDRAWALS;
+                continue;
+            }
+            put(i, cases.get(i % cases.size()));
+        }
+    }
+
+    @Test
+    void scalarMatchesAccounts() {
+        long[] interest = new long[SLOTS];
+        long[] fees = new long[SLOTS];
+        MonthEndKernel.computeScalar(policy, views, balances, types, loyalty, withdrawals, 0, SLOTS, interest, fees);
+        assertMatchesAccounts(0, SLOTS, interest, fees);
+    }
+
+    @Test
+    void vectorMatchesScalarAndAccounts() {
+        assumeTrue(MonthEndKernel.isVectorized(), "jdk.incubator.vector is not usable here");
+        long[] interest = new long[SLOTS];
+        long[] fees = new long[SLOTS];
+        computeVector(0, SLOTS, interest, fees);
+        long[] scalarInterest = new long[SLOTS];
+        long[] scalarFees = new long[SLOTS];
+        MonthEndKernel.computeScalar(policy, views, balances, types, loyalty, withdrawals, 0, SLOTS,
+                scalarInterest, scalarFees);
+        assertArrayEquals(scalarInterest, interest);
+        assertArrayEquals(scalarFees, fees);
+        assertMatchesAccounts(0, SLOTS, interest, fees);
+    }
+
+    @Test
+    void vectorHandlesUnalignedRuns() {
+        assumeTrue(MonthEndKernel.isVectorized(), "jdk.incubator.vector is not usable here");
+        int[] starts = {0, 1, 3, 7, 8, 9, 13, 100};
+        int[] lengths = {0, 1, 5, 7, 8, 9, 15, 16, 17, 63, 500};
+        for (int from : starts) {
+            for (int length : lengths) {
+                for (int to : new int[] {from + length, SLOTS - length}) {
+                    if (to < from) {
+                        continue;
+                    }
+                    long[] interest = filled();
+                    long[] fees = filled();
+                    computeVector(from, to, interest, fees);
+                    long[] scalarInterest = filled();
+                    long[] scalarFees = filled();
+                    MonthEndKernel.computeScalar(policy, views, balances, types, loyalty, withdrawals, from, to,
+                            scalarInterest, scalarFees);
+                    assertArrayEquals(scalarInterest, interest, "interest of " + from + ".." + to);
+                    assertArrayEquals(scalarFees, fees, "fees of " + from + ".." + to);
+                    assertMatchesAccounts(from, to, interest, fees);
+                    assertUntouched(from, to, interest, fees);
+                }
+            }
+        }
+    }
+
+    @Test
+    void riskyBalancesTakeTheScalarPath() {
+        long threshold = Long.MAX_VALUE / policy.maxRate();
+        for (int i = 0; i < SLOTS; i++) {
+            if (accounts[i] != null && accounts[i].getType().isChecking() && i % 3 == 0) {
+                put(i, new Case(accounts[i].getType(), (i % 2 == 0 ? 1 : -1) * (threshold + i), false, 0));
+            }
+        }
+        long[] interest = new long[SLOTS];
+        long[] fees = new long[SLOTS];
+        MonthEndKernel.computeScalar(policy, views, balances, types, loyalty, withdrawals, 0, SLOTS, interest, fees);
+        assertMatchesAccounts(0, SLOTS, interest, fees);
+        if (MonthEndKernel.isVectorized()) {
+            long[] vectorInterest = new long[SLOTS];
+            long[] vectorFees = new long[SLOTS];
+            computeVector(0, SLOTS, vectorInterest, vectorFees);
+            assertArrayEquals(interest, vectorInterest);
+            assertArrayEquals(fees, vectorFees);
+        }
+    }
+
+    @Test
+    void overflowThrowsOnEveryPath() {
+        int slot = 2 * 8 + 3; // inside a whole block
+        put(slot, new Case(AccountType.SAVINGS, Long.MAX_VALUE / 2, true, 0));
+        assertThrows(ArithmeticException.class, accounts[slot]::monthlyInterest);
+        assertThrows(ArithmeticException.class, () -> MonthEndKernel.computeScalar(policy, views, balances, types,
+                loyalty, withdrawals, 0, SLOTS, new long[SLOTS], new long[SLOTS]));
+        if (MonthEndKernel.isVectorized()) {
+            assertThrows(ArithmeticException.class, () -> computeVector(0, SLOTS, new long[SLOTS], new long[SLOTS]));
+        }
+    }
+
+    @Test
+    void casesCoverTies() {
+        for (AccountType type : AccountType.values()) {
+            long rate = policy.rate(type.ordinal());
+            if (rate > 0) {
+                assertFalse(ties(rate).isEmpty(), "no tie for " + type);
+            }
+        }
+    }
+
+    /**
+     * Runs VectorMonthEnd over a run of slots and the scalar loop over the
+     * slots it leaves.
+     *
+     * @param from     The first slot.
+     * @param to       The end of the run, exclusive.
+     * @param interest Receives the interest of each slot.
+     * @param fees     Receives the fee of each slot.
+     */
+    private void computeVector(int from, int to, long[] interest, long[] fees) {
+        int rest = VectorMonthEnd.compute(policy, views, balances, types, loyalty, withdrawals, from, to,
+                interest, fees);
+        MonthEndKernel.computeScalar(policy, views, balances, types, loyalty, withdrawals, rest, to, interest, fees);
+    }
+
+    /**
+     * Checks the amounts computed for the open slots of a run against the
+     * monthlyInterest() and monthlyFee() of their accounts.
+     *
+     * @param from     The first slot of the run.
+     * @param to       The end of the run, exclusive.
+     * @param interest The interest computed for each slot.
+     * @param fees     The fee computed for each slot.
+     */
+    private void assertMatchesAccounts(int from, int to, long[] interest, long[] fees) {
+        for (int i = from; i < to; i++) {
+            Account account = accounts[i];
+            if (account != null) {
+                String state = account.getType() + " " + account.getBalance() + " at slot " + i;
+                assertEquals(account.monthlyInterest(), interest[i], "interest of " + state);
+                assertEquals(account.monthlyFee(), fees[i], "fee of " + state);
+            }
+        }
+    }
+
+    /**
+     * Checks that the amounts of the slots outside a run were not written.
+     *
+     * @param from     The first slot of the run.
+     * @param to       The end of the run, exclusive.
+     * @param interest The interest column, filled with NOT_COMPUTED first.
+     * @param fees     The fee column, filled with NOT_COMPUTED first.
+     */
+    private static void assertUntouched(int from, int to, long[] interest, long[] fees) {
+        for (int i = 0; i < SLOTS; i++) {
+            if (i < from || i >= to) {
+                assertEquals(NOT_COMPUTED, interest[i], "interest of slot " + i + " outside " + from + ".." + to);
+                assertEquals(NOT_COMPUTED, fees[i], "fee of slot " + i + " outside " + from + ".." + to);
+            }
+        }
+    }
+
+    /**
+     * Creates an output column with every amount marked as not computed.
+     *
+     * @return The column.
+     */
+    private static long[] filled() {
+        long[] amounts = new long[SLOTS];
+        Arrays.fill(amounts, NOT_COMPUTED);
+        return amounts;
+    }
+
+    /**
+     * Stores a case in a slot of the segment and as a detached account.
+     *
+     * @param slot The slot.
+     * @param c    The state of the account.
+     */
+    private void put(int slot, Case c) {
+        Profile holder = new Profile("First" + slot, "Last", new Date("1/2/1990"));
+        int code = c.loyal() ? 1 : 0;
+        Account account = switch (c.type()) {
+            case CHECKING -> new Checking(holder, c.balance());
+            case COLLEGE_CHECKING -> new CollegeChecking(holder, c.balance(), 0);
+            case SAVINGS -> new Savings(holder, c.balance(), code);
+            case MONEY_MARKET -> new MoneyMarket(holder, c.balance(), code);
+        };
+        if (account instanceof MoneyMarket moneyMarket) {
+            moneyMarket.setWithdrawals(c.withdrawals());
+        }
+        accounts[slot] = account;
+        views[slot] = account;
+        balances[slot] = c.balance();
+        types[slot] = (byte) c.type().ordinal();
+        withdrawals[slot] = account.withdrawalCount();
+        if (account.loyalStatus()) {
+            loyalty[slot >>> 6] |= 1L << slot;
+        } else {
+            loyalty[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Lists the states to be checked: for every account type, balances on
+     * both sides of each of its thresholds, negative balances and half-cent
+     * ties, each with and without the loyal status and with withdrawal
+     * counts around the limit.
+     *
+     * @return The cases.
+     */
+    private List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+        for (AccountType type : AccountType.values()) {
+            int t = type.ordinal();
+            List<Long> amounts = new ArrayList<>(List.of(0L, 1L, -1L, 99L, 12_345_678L, -12_345_678L));
+            for (long threshold : new long[] {policy.noFeeBalance(t), policy.loyalBalance(t)}) {
+                if (threshold != Long.MIN_VALUE && threshold != Long.MAX_VALUE) {
+                    amounts.addAll(List.of(threshold - 1, threshold, threshold + 1, -threshold));
+                }
+            }
+            for (long rate : new long[] {policy.rate(t), policy.rate(t) + policy.loyaltyBonus(t)}) {
+                for (long tie : ties(rate)) {
+                    amounts.add(tie);
+                    amounts.add(-tie);
+                }
+            }
+            int limit = policy.withdrawLimit(t) == Integer.MAX_VALUE ? 0 : policy.withdrawLimit(t);
+            for (long amount : amounts) {
+                for (boolean loyal : new boolean[] {false, true}) {
+                    for (int count = Math.max(limit - 1, 0); count <= limit + 2; count++) {
+                        cases.add(new Case(type, amount, loyal, count));
+                    }
+                }
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Finds balances whose monthly interest at a rate is exactly half a
+     * cent over a whole cent, one with an even and one with an odd number of
+     * cents, so that half-even rounding goes both ways.
+     *
+     * @param rate The annual rate, in millionths.
+     * @return The balances found, in cents.
+     */
+    private static List<Long> ties(long rate) {
+        List<Long> ties = new ArrayList<>();
+        boolean even = false;
+        boolean odd = false;
+        for (long balance = 1; balance <= TIE_SEARCH && rate > 0 && !(even && odd); balance++) {
+            long product = balance * rate;
+            if (product % DIVISOR == DIVISOR / 2) {
+                boolean isEven = (product / DIVISOR) % 2 == 0;
+                if (isEven ? !even : !odd) {
+                    ties.add(balance);
+                    even |= isEven;
+                    odd |= !isEven;
+                }
+            }
+        }
+        return ties;
+    }
+}
@@ -0,0 +1,101 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that recovering a database from its snapshot and journal gives the
+ * balances it had, when postings ran on several threads concurrently with
+ * month ends and snapshots.
+ *
+ * @author Altay Ozkan
+ */
+class RecoveryTest {
+    private static final int ACCOUNTS = 16;
+    private static final int THREADS = 4;
+    private static final int POSTINGS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryMatchesConcurrentPostings() throws Exception {
+        Path snapshot = directory.resolve("snapshot");
+        Path journalPath = directory.resolve("journal");
+        AccountDatabase database = new AccountDatabase(0, true);
+        Journal journal = new Journal(journalPath, DurabilityPolicy.PER_BATCH);
+        database.setJournal(journal);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Profile holder = new Profile("First" + i, "Last" + i, new Date("1/2/1990"));
+            Account account = switch (i % 4) {
+                case 0 -> new Checking(holder, 100_000);
+                case 1 -> new CollegeChecking(holder, 100_000, i % 3);
+                case 2 -> new Savings(holder, 100_000, 1);
+                default -> new MoneyMarket(holder, 300_000, 0);
+            };
+            database.open(account);
+            accounts.add(account);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            Thread thread = new Thread(() -> {
+                for (int k = 0; k < POSTINGS; k++) {
+                    Account account = accounts.get(random.nextInt(ACCOUNTS));
+                    long amount = 1 + random.nextInt(50_000);
+                    if (random.nextBoolean()) {
+                        database.deposit(account.getHolder(), account.getType(), amount);
+                    } else {
+                        database.withdraw(account.getHolder(), account.getType(), amount);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (int month = 0; month < 40; month++) {
+            database.closeMonth();
+            if (month == 20) {
+                database.writeSnapshot(snapshot);
+            }
+            Thread.yield();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        database.closeMonth();
+        database.setJournal(null);
+        journal.close();
+
+        AccountDatabase fromJournal = AccountDatabase.recover(directory.resolve("missing"), journalPath, true);
+        AccountDatabase fromSnapshot = AccountDatabase.recover(snapshot, journalPath, true);
+        for (Account account : accounts) {
+            long balance = database.getAccount(account).getBalance();
+            assertBalance(balance, fromJournal, account);
+            assertBalance(balance, fromSnapshot, account);
+        }
+    }
+
+    /**
+     * Checks the balance of an account in a recovered database.
+     *
+     * @param expected  The balance of the original account, in cents.
+     * @param recovered The recovered database.
+     * @param account   The account, found by holder and type.
+     */
+    private static void assertBalance(long expected, AccountDatabase recovered, Account account) {
+        Account found = recovered.getAccount(account);
+        assertNotNull(found);
+        assertEquals(expected, found.getBalance(), account.getHolder().getFname() + " " + account.getType());
+    }
+}
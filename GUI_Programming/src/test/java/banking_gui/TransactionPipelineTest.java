@@ -0,0 +1,110 @@
+package banking_gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests that the TransactionPipeline applies every command it accepted,
+ * including around a stop, and survives a command or a listener that
+ * throws.
+ *
+ * @author Altay Ozkan
+ */
+class TransactionPipelineTest {
+
+    @Test
+    void throwingCommandFailsAlone() throws InterruptedException {
+        AccountDatabase database = new AccountDatabase(0, true);
+        Map<Long, Integer> results = new ConcurrentHashMap<>();
+        TransactionPipeline pipeline = new TransactionPipeline(database, 8,
+                command -> results.put(command.getSequence(), command.getResult()));
+        pipeline.start();
+        Account account = new Checking(new Profile("John", "Doe", new Date("1/2/1990")), 1000);
+        long opened = pipeline.open(account);
+        long duplicate = pipeline.open(new CollegeChecking(account.getHolder(), 500, 0));
+        long broken = pipeline.transfer(account, null, 100);
+        long deposited = pipeline.deposit(account, 250);
+        pipeline.awaitApplied(deposited);
+        pipeline.stop();
+
+        assertEquals(Constants.TRANSACTION_DONE, results.get(opened));
+        assertEquals(Constants.DUPLICATE_ACCOUNT, results.get(duplicate));
+        assertEquals(Constants.TRANSACTION_FAILED, results.get(broken));
+        assertEquals(Constants.TRANSACTION_DONE, results.get(deposited));
+        assertNotNull(pipeline.getFailure());
+        assertEquals(1250, database.getAccount(account).getBalance());
+    }
+
+    @Test
+    @Timeout(value = 60, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void throwingListenerDoesNotStallProducers() throws InterruptedException {
+        AccountDatabase database = new AccountDatabase(0, true);
+        Account account = new Checking(new Profile("John", "Doe", new Date("1/2/1990")), 0);
+        database.open(account);
+        AtomicLong seen = new AtomicLong();
+        TransactionPipeline pipeline = new TransactionPipeline(database, 8, command -> {
+            seen.incrementAndGet();
+            throw new IllegalStateException("listener failed");
+        });
+        pipeline.start();
+        long last = 0;
+        for (int i = 0; i < 100; i++) {
+            last = pipeline.deposit(account, 1);
+        }
+        pipeline.awaitApplied(last);
+        pipeline.stop();
+
+        assertEquals(100, database.getAccount(account).getBalance());
+        assertEquals(100, seen.get());
+        assertNotNull(pipeline.getFailure());
+    }
+
+    @Test
+    @Timeout(60)
+    void stopAppliesEveryAcceptedCommand() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AccountDatabase database = new AccountDatabase(0, true);
+            Account account = new Savings(new Profile("Jane", "Doe", new Date("3/4/1985")), 0, 0);
+            database.open(account);
+            TransactionPipeline pipeline = new TransactionPipeline(database, 16);
+            pipeline.start();
+            AtomicLong accepted = new AtomicLong();
+            AtomicLong last = new AtomicLong(Constants.NOT_FOUND);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread producer = new Thread(() -> {
+                    while (true) {
+                        long sequence;
+                        try {
+                            sequence = pipeline.deposit(account, 1);
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                        accepted.incrementAndGet();
+                        last.accumulateAndGet(sequence, Math::max);
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(5);
+            pipeline.stop();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertTrue(accepted.get() > 0);
+            pipeline.awaitApplied(last.get());
+            assertEquals(accepted.get(), database.getAccount(account).getBalance());
+        }
+    }
+}